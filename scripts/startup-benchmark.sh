@@ -0,0 +1,111 @@
+#!/bin/sh
+# Startup benchmark: wall time from JVM launch to the first successful POST /messages,
+# for the default launch (java -jar) and the optimized one (AOT + CDS + lazy springdoc).
+#
+# Usually run through `./gradlew startupBenchmark`, which builds everything and sets
+# JAVA, APP_JAR, OPTIMIZED_DIR and OPTIMIZED_FLAGS. Needs a reachable MongoDB (docker compose up -d);
+# every run creates one message for bench@example.com.
+#
+# The median of RUNS launches per mode is compared with the baseline of that mode: BASELINE_MS when
+# set (e.g. BASELINE_MS_optimized=900), otherwise the best median of the last BASELINE_WINDOW entries
+# in HISTORY, so slow drift over several runs is caught too. The script exits 1 when a mode got more
+# than TOLERANCE percent slower; only passing medians are appended, so a regression keeps failing
+# until it is fixed (or the baseline is pinned on purpose).
+# HISTORY defaults to the versioned benchmarks/startup-benchmark.csv (outside build/, so `clean`
+# keeps the baseline); commit it to share the baseline, or point HISTORY at a machine-local file.
+set -eu
+
+JAVA=${JAVA:-java}
+RUNS=${RUNS:-5}
+PORT=${PORT:-19080}
+TOLERANCE=${TOLERANCE:-15}
+BASELINE_WINDOW=${BASELINE_WINDOW:-5}
+HISTORY=${HISTORY:-benchmarks/startup-benchmark.csv}
+LOG_DIR=${LOG_DIR:-build}
+APP_ARGS=${APP_ARGS:-}
+OPTIMIZED_FLAGS=${OPTIMIZED_FLAGS:--Dspring.aot.enabled=true -Dmessaging.startup.lazy-springdoc=true}
+: "${APP_JAR:?APP_JAR must point to the boot jar}"
+: "${OPTIMIZED_DIR:?OPTIMIZED_DIR must point to the trainCds output}"
+
+BODY='{"target":"bench@example.com","sender":"bench@example.com","title":"startup benchmark","urgent":false}'
+
+# milliseconds since the epoch; date +%N is GNU-only (BSD/macOS print "N")
+case $(date +%N) in
+    *[!0-9]* | "")
+        if command -v perl >/dev/null 2>&1; then
+            now_ms() { perl -MTime::HiRes=time -e 'printf "%d\n", time() * 1000'; }
+        elif command -v python3 >/dev/null 2>&1; then
+            now_ms() { python3 -c 'import time; print(int(time.time() * 1000))'; }
+        else
+            echo "need GNU date, perl or python3 for a millisecond clock" >&2
+            exit 1
+        fi
+        ;;
+    *)
+        now_ms() { echo $(($(date +%s%N) / 1000000)); }
+        ;;
+esac
+
+# $1 = mode, remaining arguments = java command line
+measure() {
+    mode=$1
+    shift
+    start=$(now_ms)
+    # shellcheck disable=SC2086
+    "$@" --server.port="$PORT" --spring.docker.compose.enabled=false $APP_ARGS >"$LOG_DIR/startup-$mode.log" 2>&1 &
+    pid=$!
+    until curl -s -f -o /dev/null -X POST -H 'Content-Type: application/json' -d "$BODY" \
+            "http://localhost:$PORT/messages"; do
+        if ! kill -0 "$pid" 2>/dev/null; then
+            echo "$mode: application exited before answering, see $LOG_DIR/startup-$mode.log" >&2
+            exit 1
+        fi
+        sleep 0.05
+    done
+    end=$(now_ms)
+    kill "$pid"
+    wait "$pid" 2>/dev/null || true
+    echo $((end - start))
+}
+
+median() {
+    sort -n | awk '{ v[NR] = $1 } END { print (NR % 2) ? v[(NR + 1) / 2] : int((v[NR / 2] + v[NR / 2 + 1]) / 2) }'
+}
+
+optimized_jar="$OPTIMIZED_DIR/$(basename "$APP_JAR")"
+commit=$(git rev-parse --short HEAD 2>/dev/null || echo unknown)
+mkdir -p "$LOG_DIR" "$(dirname "$HISTORY")"
+[ -f "$HISTORY" ] || echo "date,commit,mode,median_ms,runs" >"$HISTORY"
+
+status=0
+for mode in default optimized; do
+    samples=""
+    i=0
+    while [ "$i" -lt "$RUNS" ]; do
+        if [ "$mode" = default ]; then
+            t=$(measure "$mode" "$JAVA" -jar "$APP_JAR")
+        else
+            # shellcheck disable=SC2086
+            t=$(measure "$mode" "$JAVA" -XX:SharedArchiveFile="$OPTIMIZED_DIR/application.jsa" -Xlog:cds=off \
+                    $OPTIMIZED_FLAGS -jar "$optimized_jar")
+        fi
+        samples="$samples $t"
+        i=$((i + 1))
+    done
+
+    current=$(echo "$samples" | tr ' ' '\n' | grep . | median)
+    baseline=$(eval "echo \${BASELINE_MS_$mode:-}")
+    if [ -z "$baseline" ]; then
+        baseline=$(grep ",$mode," "$HISTORY" | tail -n "$BASELINE_WINDOW" | cut -d, -f4 | sort -n | head -1)
+    fi
+    echo "$mode: median ${current} ms over $RUNS runs (samples:$samples)${baseline:+, baseline ${baseline} ms}"
+
+    if [ -n "$baseline" ] && [ $((current * 100)) -gt $((baseline * (100 + TOLERANCE))) ]; then
+        echo "$mode: startup regression, more than $TOLERANCE% slower than the baseline; not recorded" >&2
+        status=1
+        continue
+    fi
+    echo "$(date -u +%Y-%m-%dT%H:%M:%SZ),$commit,$mode,$current,$RUNS" >>"$HISTORY"
+done
+
+exit $status
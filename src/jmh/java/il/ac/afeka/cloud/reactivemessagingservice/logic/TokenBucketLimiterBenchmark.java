@@ -0,0 +1,105 @@
+package il.ac.afeka.cloud.reactivemessagingservice.logic;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link TokenBucketLimiter} under contention: 8 threads acquiring for 1 key (every thread on
+ * the same bucket), 1k keys, or 200k keys (more than max-buckets: sweeps and overflow buckets).
+ * <ul>
+ *     <li>{@code allowed}: the quota never runs out, every call is a refill + compare-and-set</li>
+ *     <li>{@code throttled}: the quota is exhausted, calls only read the bucket</li>
+ *     <li>{@code synchronizedBaseline}: the same allowed workload on one lock-guarded map</li>
+ * </ul>
+ * Run with {@code ./gradlew jmh -PjmhIncludes=TokenBucketLimiterBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+public class TokenBucketLimiterBenchmark {
+
+    private static final int MAX_BUCKETS = 100_000;
+
+    @Param({"1", "1000", "200000"})
+    public int keys;
+
+    private String[] keyNames;
+    private TokenBucketLimiter allowing;
+    private TokenBucketLimiter throttling;
+    private SynchronizedBuckets baseline;
+
+    @Setup
+    public void setUp() {
+        keyNames = new String[keys];
+        for (int i = 0; i < keys; i++) {
+            keyNames[i] = "sender" + i + "@example.com";
+        }
+        allowing = new TokenBucketLimiter(new TokenBucketLimiter.Limit(Long.MAX_VALUE / 2, 1e12),
+                Map.of(), MAX_BUCKETS, 1000);
+        throttling = new TokenBucketLimiter(new TokenBucketLimiter.Limit(1, 1e-6),
+                Map.of(), MAX_BUCKETS, 1000);
+        baseline = new SynchronizedBuckets(Long.MAX_VALUE / 2, 1e12);
+    }
+
+    @Benchmark
+    public boolean allowed() {
+        return allowing.tryAcquire(nextKey()).allowed();
+    }
+
+    @Benchmark
+    public boolean throttled() {
+        return throttling.tryAcquire(nextKey()).allowed();
+    }
+
+    @Benchmark
+    public boolean synchronizedBaseline() {
+        return baseline.tryAcquire(nextKey());
+    }
+
+    private String nextKey() {
+        return keys == 1 ? keyNames[0] : keyNames[ThreadLocalRandom.current().nextInt(keys)];
+    }
+
+    /** What a straightforward implementation looks like: one lock around mutable buckets. */
+    private static final class SynchronizedBuckets {
+
+        private final Map<String, double[]> buckets = new HashMap<>();
+        private final long capacity;
+        private final double refillPerNano;
+
+        SynchronizedBuckets(long capacity, double refillPerSecond) {
+            this.capacity = capacity;
+            this.refillPerNano = refillPerSecond / 1e9;
+        }
+
+        synchronized boolean tryAcquire(String key) {
+            long now = System.nanoTime();
+            double[] bucket = buckets.computeIfAbsent(key, k -> new double[] {capacity, now});
+            bucket[0] = Math.min(capacity, bucket[0] + (now - bucket[1]) * refillPerNano);
+            bucket[1] = now;
+            if (bucket[0] < 1) {
+                return false;
+            }
+            bucket[0]--;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package il.ac.afeka.cloud.reactivemessagingservice;
+
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.context.EnvironmentAware;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+/**
+ * With {@code messaging.startup.lazy-springdoc=true}, springdoc's beans are only created when
+ * /v3/api-docs or the Swagger UI is first requested instead of during startup.
+ * Its handler mappings are still registered, so the endpoints keep working.
+ * <p>
+ * Beans the framework collects while starting (springdoc's WebFlux configurers and application
+ * listeners, and the properties and object mapper they need) are still created eagerly; what is
+ * deferred is the OpenAPI model: the document builders, model converters and resource.
+ */
+@Component
+public class LazySpringdocPostProcessor implements BeanFactoryPostProcessor, EnvironmentAware {
+
+    private static final String SPRINGDOC_PACKAGE = "org.springdoc.";
+
+    private boolean enabled;
+
+    @Override
+    public void setEnvironment(Environment environment) {
+        this.enabled = environment.getProperty("messaging.startup.lazy-springdoc", Boolean.class, false);
+    }
+
+    @Override
+    public void postProcessBeanFactory(ConfigurableListableBeanFactory beanFactory) {
+        if (!enabled) {
+            return;
+        }
+        for (String name : beanFactory.getBeanDefinitionNames()) {
+            BeanDefinition definition = beanFactory.getBeanDefinition(name);
+            if (isSpringdoc(definition)) {
+                definition.setLazyInit(true);
+            }
+        }
+    }
+
+    static boolean isSpringdoc(BeanDefinition definition) {
+        String type = definition.getBeanClassName();
+        if (type == null && definition.getResolvableType().resolve() != null) {
+            type = definition.getResolvableType().resolve().getName();
+        }
+        if (type == null && definition.getFactoryBeanName() != null) {
+            type = definition.getFactoryBeanName();
+        }
+        return type != null && type.startsWith(SPRINGDOC_PACKAGE);
+    }
+}
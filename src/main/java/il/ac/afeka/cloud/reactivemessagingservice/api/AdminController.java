@@ -0,0 +1,59 @@
+package il.ac.afeka.cloud.reactivemessagingservice.api;
+
+import il.ac.afeka.cloud.reactivemessagingservice.dal.SlowQueryDetector;
+import il.ac.afeka.cloud.reactivemessagingservice.dal.SlowQuerySample;
+import il.ac.afeka.cloud.reactivemessagingservice.logic.MessageRateLimiter;
+import il.ac.afeka.cloud.reactivemessagingservice.logic.MoreDetailsMigration;
+import il.ac.afeka.cloud.reactivemessagingservice.model.MoreDetailsCompressor;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+@RestController
+@RequestMapping(path = "/admin")
+public class AdminController {
+
+    private final SlowQueryDetector slowQueries;
+    private final MoreDetailsCompressor compressor;
+    private final MoreDetailsMigration migration;
+    private final MessageRateLimiter rateLimiter;
+
+    public AdminController(SlowQueryDetector slowQueries, MoreDetailsCompressor compressor,
+                           MoreDetailsMigration migration, MessageRateLimiter rateLimiter) {
+        this.slowQueries = slowQueries;
+        this.compressor = compressor;
+        this.migration = migration;
+        this.rateLimiter = rateLimiter;
+    }
+
+    // GET /admin/slow-queries  (slowest first)
+    @GetMapping(path = "/slow-queries", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Flux<SlowQuerySample> getSlowQueries() {
+        return Flux.fromIterable(slowQueries.top());
+    }
+
+    // DELETE /admin/slow-queries
+    @DeleteMapping(path = "/slow-queries")
+    public Mono<Void> resetSlowQueries() {
+        return Mono.fromRunnable(slowQueries::reset);
+    }
+
+    // GET /admin/details-compression  (counters since startup)
+    @GetMapping(path = "/details-compression", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<MoreDetailsCompressor.Stats> getCompressionStats() {
+        return Mono.fromSupplier(compressor::stats);
+    }
+
+    // POST /admin/details-compression/migrate  (compress large moreDetails of existing messages)
+    @PostMapping(path = "/details-compression/migrate", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<MoreDetailsMigration.Result> migrateCompression() {
+        return migration.compressExisting();
+    }
+
+    // GET /admin/rate-limits  (create() throttling counters since startup)
+    @GetMapping(path = "/rate-limits", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<MessageRateLimiter.Stats> getRateLimitStats() {
+        return Mono.fromSupplier(rateLimiter::stats);
+    }
+}
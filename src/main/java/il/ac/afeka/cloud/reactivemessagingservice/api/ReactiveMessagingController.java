@@ -1,12 +1,19 @@
 package il.ac.afeka.cloud.reactivemessagingservice.api;
 
 import il.ac.afeka.cloud.reactivemessagingservice.error.BadRequestException;
+import il.ac.afeka.cloud.reactivemessagingservice.error.TooManyRequestsException;
 import il.ac.afeka.cloud.reactivemessagingservice.logic.ReactiveMessagingService;
+import il.ac.afeka.cloud.reactivemessagingservice.logic.TokenBucketLimiter;
 import il.ac.afeka.cloud.reactivemessagingservice.model.MessageBoundary;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ServerWebExchange;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 @RestController
 @RequestMapping(path = "/messages")
@@ -18,11 +25,27 @@ public class ReactiveMessagingController {
         this.service = service;
     }
 
+    // Searches answer 304 (and skip the query) while the If-None-Match version is still current.
+    // The service checks the version once the inputs are valid, so invalid searches still get 400.
+    private static Context conditional(ServerWebExchange exchange) {
+        return Context.of(ReactiveMessagingService.NOT_MODIFIED, (Predicate<String>) exchange::checkNotModified);
+    }
+
     // POST /messages
     @PostMapping(consumes = MediaType.APPLICATION_JSON_VALUE,
                  produces = MediaType.TEXT_EVENT_STREAM_VALUE)
-    public Mono<MessageBoundary> create(@RequestBody MessageBoundary body) {
-        return service.create(body);
+    public Mono<MessageBoundary> create(@RequestBody MessageBoundary body, ServerWebExchange exchange) {
+        return service.create(body).contextWrite(rateLimitHeaders(exchange));
+    }
+
+    // Admitted messages report the remaining quota too, so clients can pace themselves before a 429.
+    private static Context rateLimitHeaders(ServerWebExchange exchange) {
+        Consumer<TokenBucketLimiter.Decision> report = quota -> {
+            HttpHeaders headers = exchange.getResponse().getHeaders();
+            headers.set(TooManyRequestsException.LIMIT_HEADER, Long.toString(quota.limit()));
+            headers.set(TooManyRequestsException.REMAINING_HEADER, Long.toString(quota.remaining()));
+        };
+        return Context.of(ReactiveMessagingService.RATE_LIMIT, report);
     }
 
     // GET /messages?size={size}&page={page}
@@ -31,10 +54,11 @@ public class ReactiveMessagingController {
             @RequestParam(name = "search", required = false) String search,
             @RequestParam(name = "value", required = false) String value,
             @RequestParam(value = "page", defaultValue = "0") int page,
-            @RequestParam(value = "size", defaultValue = "10") int size) {
+            @RequestParam(value = "size", defaultValue = "10") int size,
+            ServerWebExchange exchange) {
 
         if ((search == null || search.isBlank()) && (value == null || value.isBlank())) {
-            return service.getAll(page, size);
+            return service.getAll(page, size).contextWrite(conditional(exchange));
         }
 
         throw new BadRequestException("Unsupported inputs");
@@ -46,9 +70,9 @@ public class ReactiveMessagingController {
     public Flux<MessageBoundary> getByRecipient(
             @RequestParam(name = "value", required = false) String recipientEmail,
             @RequestParam(value = "page", defaultValue = "0") int page,
-            @RequestParam(value = "size", defaultValue = "10") int size) {
-
-        return service.getByRecipient(recipientEmail, page, size);
+            @RequestParam(value = "size", defaultValue = "10") int size,
+            ServerWebExchange exchange) {
+        return service.getByRecipient(recipientEmail, page, size).contextWrite(conditional(exchange));
 
     }
 
@@ -58,9 +82,9 @@ public class ReactiveMessagingController {
     public Flux<MessageBoundary> getBySender(
             @RequestParam(name = "value", required = false) String senderEmail,
             @RequestParam(value = "page", defaultValue = "0") int page,
-            @RequestParam(value = "size", defaultValue = "10") int size) {
-
-        return service.getBySender(senderEmail, page, size);
+            @RequestParam(value = "size", defaultValue = "10") int size,
+            ServerWebExchange exchange) {
+        return service.getBySender(senderEmail, page, size).contextWrite(conditional(exchange));
 
     }
 
@@ -77,9 +101,10 @@ public class ReactiveMessagingController {
     @GetMapping(params = {"search=byId", "value"},
                 produces = MediaType.TEXT_EVENT_STREAM_VALUE)
     public Mono<MessageBoundary> getById(
-            @RequestParam("value") String id)
+            @RequestParam("value") String id,
+            ServerWebExchange exchange)
     {
-        return service.getById(id);
+        return service.getById(id).contextWrite(conditional(exchange));
     }
 
     // GET /messages?search=byUrgent&size={size}&page={page}
@@ -87,8 +112,9 @@ public class ReactiveMessagingController {
                 produces = MediaType.TEXT_EVENT_STREAM_VALUE)
     public Flux<MessageBoundary> getUrgent(
             @RequestParam(value = "page", defaultValue = "0") int page,
-            @RequestParam(value = "size", defaultValue = "10") int size) {
-        return service.getUrgent(page, size);
+            @RequestParam(value = "size", defaultValue = "10") int size,
+            ServerWebExchange exchange) {
+        return service.getUrgent(page, size).contextWrite(conditional(exchange));
     }
 
     // GET /messages?search=urgentOnlyByRecipient&value={recipientEmail}&size={size}&page={page}
@@ -97,8 +123,9 @@ public class ReactiveMessagingController {
     public Flux<MessageBoundary> getUrgentByRecipient(
             @RequestParam(name = "value", required = false) String recipientEmail,
             @RequestParam(value = "page", defaultValue = "0") int page,
-            @RequestParam(value = "size", defaultValue = "10") int size) {
-        return service.getUrgentByRecipient(recipientEmail, page, size);
+            @RequestParam(value = "size", defaultValue = "10") int size,
+            ServerWebExchange exchange) {
+        return service.getUrgentByRecipient(recipientEmail, page, size).contextWrite(conditional(exchange));
     }
 
     // GET /messages?search=urgentOnlyBySender&value={senderEmail}&size={size}&page={page}
@@ -107,8 +134,29 @@ public class ReactiveMessagingController {
     public Flux<MessageBoundary> getUrgentBySender(
             @RequestParam(name = "value", required = false) String senderEmail,
             @RequestParam(value = "page", defaultValue = "0") int page,
-            @RequestParam(value = "size", defaultValue = "10") int size) {
-        return service.getUrgentBySender(senderEmail, page, size);
+            @RequestParam(value = "size", defaultValue = "10") int size,
+            ServerWebExchange exchange) {
+        return service.getUrgentBySender(senderEmail, page, size).contextWrite(conditional(exchange));
     }
 
+    // GET /messages?search=byText&value={words}&target={recipientEmail}&order={relevance|timestamp}&size={size}&page={page}
+    @GetMapping(params = {"search=byText", "value"},
+                produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<MessageBoundary> searchByText(
+            @RequestParam(name = "value", required = false) String text,
+            @RequestParam(name = "target", required = false) String recipientEmail,
+            @RequestParam(name = "order", defaultValue = "relevance") String order,
+            @RequestParam(value = "page", defaultValue = "0") int page,
+            @RequestParam(value = "size", defaultValue = "10") int size,
+            ServerWebExchange exchange) {
+        return service.searchByText(text, recipientEmail, order, page, size).contextWrite(conditional(exchange));
+    }
+
+    // 429 from create(): Boot's error handler renders the body but ignores exception headers,
+    // so the quota headers are put on the response before passing the exception on.
+    @ExceptionHandler(TooManyRequestsException.class)
+    public Mono<Void> tooManyRequests(TooManyRequestsException e, ServerWebExchange exchange) {
+        exchange.getResponse().getHeaders().addAll(e.getHeaders());
+        return Mono.error(e);
+    }
 }
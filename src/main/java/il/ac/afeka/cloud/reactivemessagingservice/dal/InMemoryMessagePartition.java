@@ -0,0 +1,115 @@
+package il.ac.afeka.cloud.reactivemessagingservice.dal;
+
+import il.ac.afeka.cloud.reactivemessagingservice.model.MessageEntity;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Partition kept in a map, used by the {@code inmemory} profile and in tests.
+ * Evaluates the same filters as {@link MessageQueryEngine}, and projections are ignored (whole
+ * entities are returned). Text queries match and score titles the way {@link InMemoryMessageTextIndex}
+ * does; hits are returned as copies carrying their score, so relevance-ordered results of several
+ * partitions merge like Mongo's.
+ */
+public class InMemoryMessagePartition implements MessagePartition {
+
+    private final String name;
+    private final Map<String, MessageEntity> messages = new ConcurrentHashMap<>();
+
+    public InMemoryMessagePartition(String name) {
+        this.name = name;
+    }
+
+    @Override
+    public String name() {
+        return name;
+    }
+
+    @Override
+    public Mono<MessageEntity> save(MessageEntity entity) {
+        return Mono.fromSupplier(() -> {
+            messages.put(entity.getId(), entity);
+            return entity;
+        });
+    }
+
+    @Override
+    public Mono<MessageEntity> findById(String id) {
+        return Mono.fromSupplier(() -> messages.get(id));
+    }
+
+    @Override
+    public Flux<MessageEntity> find(MessageQuery query) {
+        return Flux.defer(() -> {
+            Pageable pageable = query.getPageable();
+            Stream<MessageEntity> matching = messages.values().stream()
+                    .filter(e -> matches(query, e));
+            Comparator<MessageEntity> order = MessageOrder.of(pageable.getSort());
+            if (query.getText() != null) {
+                List<String> terms = InMemoryMessageTextIndex.tokenize(query.getText()).stream().distinct().toList();
+                matching = matching.map(e -> scored(e, terms)).filter(e -> e.getScore() > 0);
+                if (query.getTextOrder() == TextSearchOrder.RELEVANCE) {
+                    order = MessageOrder.byScoreThen(pageable.getSort());
+                }
+            }
+            matching = matching.sorted(order);
+            if (pageable.isPaged()) {
+                matching = matching.skip(pageable.getOffset()).limit(pageable.getPageSize());
+            }
+            return Flux.fromStream(matching);
+        });
+    }
+
+    @Override
+    public Flux<MessageEntity> findAll() {
+        return Flux.defer(() -> Flux.fromIterable(messages.values()));
+    }
+
+    @Override
+    public Mono<Void> deleteAll() {
+        return Mono.fromRunnable(messages::clear);
+    }
+
+    @Override
+    public Mono<Void> createIndex(IndexDefinition index) {
+        return Mono.empty();
+    }
+
+    private static boolean matches(MessageQuery q, MessageEntity e) {
+        Date ts = e.getPublicationTimestamp();
+        return (q.getTarget() == null || q.getTarget().equals(e.getTarget()))
+                && (q.getSender() == null || q.getSender().equals(e.getSender()))
+                && (!q.isUrgentOnly() || e.isUrgent())
+                && (q.getFrom() == null || !ts.toInstant().isBefore(q.getFrom()))
+                && (q.getTo() == null || ts.toInstant().isBefore(q.getTo()))
+                && (q.getAfter() == null || isAfter(q.getAfter(), e));
+    }
+
+    private static MessageEntity scored(MessageEntity e, List<String> terms) {
+        Map<String, Integer> termFrequencies = InMemoryMessageTextIndex.termFrequencies(e.getTitle());
+        MessageEntity rv = new MessageEntity();
+        rv.setId(e.getId());
+        rv.setTarget(e.getTarget());
+        rv.setSender(e.getSender());
+        rv.setTitle(e.getTitle());
+        rv.setPublicationTimestamp(e.getPublicationTimestamp());
+        rv.setUrgent(e.isUrgent());
+        rv.setMoreDetails(e.getMoreDetails());
+        rv.setCompressedMoreDetails(e.getCompressedMoreDetails());
+        rv.setScore((float) terms.stream().mapToInt(term -> termFrequencies.getOrDefault(term, 0)).sum());
+        return rv;
+    }
+
+    private static boolean isAfter(MessageQuery.Cursor cursor, MessageEntity e) {
+        int byTime = e.getPublicationTimestamp().toInstant().compareTo(cursor.publicationTimestamp());
+        return byTime < 0 || (byTime == 0 && e.getId().compareTo(cursor.id()) > 0);
+    }
+}
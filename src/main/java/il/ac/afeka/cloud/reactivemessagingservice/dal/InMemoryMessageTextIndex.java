@@ -0,0 +1,100 @@
+package il.ac.afeka.cloud.reactivemessagingservice.dal;
+
+import il.ac.afeka.cloud.reactivemessagingservice.model.MessageEntity;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Inverted index (term -> message ids) over message titles, used when running without MongoDB.
+ * Scoring is the number of query-term occurrences in the title, which mirrors the ordering
+ * a Mongo text index gives for short titles closely enough for tests.
+ */
+@Component
+@Profile("inmemory")
+public class InMemoryMessageTextIndex implements MessageTextIndex {
+
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    // Same order as the service DEFAULT_SORT: newest first, then id ascending.
+    private static final Comparator<MessageEntity> NEWEST_FIRST =
+            Comparator.comparing(MessageEntity::getPublicationTimestamp, Comparator.reverseOrder())
+                    .thenComparing(MessageEntity::getId);
+
+    private final Map<String, Set<String>> postings = new ConcurrentHashMap<>();
+    private final Map<String, IndexedMessage> messages = new ConcurrentHashMap<>();
+
+    @Override
+    public Mono<Void> index(MessageEntity entity) {
+        return Mono.fromRunnable(() -> {
+            Map<String, Integer> termFrequencies = termFrequencies(entity.getTitle());
+            messages.put(entity.getId(), new IndexedMessage(entity, termFrequencies));
+            termFrequencies.keySet().forEach(term ->
+                    postings.computeIfAbsent(term, t -> ConcurrentHashMap.newKeySet()).add(entity.getId()));
+        });
+    }
+
+    @Override
+    public Mono<Void> clear() {
+        return Mono.fromRunnable(() -> {
+            messages.clear();
+            postings.clear();
+        });
+    }
+
+    @Override
+    public Flux<MessageEntity> search(String text, String target, TextSearchOrder order, Pageable pageable) {
+        return Flux.defer(() -> {
+            Map<String, MessageEntity> hits = new HashMap<>();
+            Map<String, Integer> scores = new HashMap<>();
+            for (String term : tokenize(text).stream().distinct().toList()) {
+                for (String id : postings.getOrDefault(term, Set.of())) {
+                    IndexedMessage indexed = messages.get(id);
+                    if (indexed != null && (target == null || target.equals(indexed.entity().getTarget()))) {
+                        hits.put(id, indexed.entity());
+                        scores.merge(id, indexed.termFrequencies().getOrDefault(term, 0), Integer::sum);
+                    }
+                }
+            }
+
+            Comparator<MessageEntity> comparator = order == TextSearchOrder.RELEVANCE
+                    ? Comparator.<MessageEntity>comparingInt(e -> scores.get(e.getId())).reversed().thenComparing(NEWEST_FIRST)
+                    : NEWEST_FIRST;
+
+            return Flux.fromStream(hits.values().stream()
+                    .sorted(comparator)
+                    .skip(pageable.getOffset())
+                    .limit(pageable.getPageSize()));
+        });
+    }
+
+    static Map<String, Integer> termFrequencies(String title) {
+        Map<String, Integer> rv = new HashMap<>();
+        for (String term : tokenize(title)) {
+            rv.merge(term, 1, Integer::sum);
+        }
+        return rv;
+    }
+
+    static List<String> tokenize(String text) {
+        if (text == null) {
+            return List.of();
+        }
+        return Arrays.stream(NON_WORD.split(text.toLowerCase(Locale.ROOT)))
+                .filter(term -> !term.isEmpty())
+                .toList();
+    }
+
+    private record IndexedMessage(MessageEntity entity, Map<String, Integer> termFrequencies) { }
+}
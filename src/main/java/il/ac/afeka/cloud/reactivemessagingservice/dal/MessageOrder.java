@@ -0,0 +1,38 @@
+package il.ac.afeka.cloud.reactivemessagingservice.dal;
+
+import il.ac.afeka.cloud.reactivemessagingservice.model.MessageEntity;
+import org.springframework.data.domain.Sort;
+import java.util.Comparator;
+
+/**
+ * In-JVM equivalent of a Mongo sort on MESSAGES (nulls sort lowest, as in Mongo), used to
+ * merge partition results and to sort in-memory partitions.
+ */
+final class MessageOrder {
+
+    private MessageOrder() { }
+
+    static Comparator<MessageEntity> of(Sort sort) {
+        Comparator<MessageEntity> rv = (a, b) -> 0;
+        for (Sort.Order order : sort) {
+            Comparator<MessageEntity> byProperty = switch (order.getProperty()) {
+                case "id" -> Comparator.comparing(MessageEntity::getId, Comparator.nullsFirst(Comparator.naturalOrder()));
+                case "target" -> Comparator.comparing(MessageEntity::getTarget, Comparator.nullsFirst(Comparator.naturalOrder()));
+                case "sender" -> Comparator.comparing(MessageEntity::getSender, Comparator.nullsFirst(Comparator.naturalOrder()));
+                case "title" -> Comparator.comparing(MessageEntity::getTitle, Comparator.nullsFirst(Comparator.naturalOrder()));
+                case "publicationTimestamp" -> Comparator.comparing(MessageEntity::getPublicationTimestamp,
+                        Comparator.nullsFirst(Comparator.naturalOrder()));
+                case "urgent" -> Comparator.comparing(MessageEntity::isUrgent);
+                default -> throw new IllegalArgumentException("Unsupported sort property: " + order.getProperty());
+            };
+            rv = rv.thenComparing(order.isAscending() ? byProperty : byProperty.reversed());
+        }
+        return rv;
+    }
+
+    // Text relevance (highest score first) ahead of the regular sort.
+    static Comparator<MessageEntity> byScoreThen(Sort sort) {
+        return Comparator.comparing(MessageEntity::getScore, Comparator.nullsLast(Comparator.reverseOrder()))
+                .thenComparing(of(sort));
+    }
+}
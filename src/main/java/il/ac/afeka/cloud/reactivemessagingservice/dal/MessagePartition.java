@@ -0,0 +1,28 @@
+package il.ac.afeka.cloud.reactivemessagingservice.dal;
+
+import il.ac.afeka.cloud.reactivemessagingservice.model.MessageEntity;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * One shard of the MESSAGES data. {@link PartitionedMessageStore} decides which partition(s)
+ * a call goes to; a partition only ever sees its own messages.
+ */
+public interface MessagePartition {
+
+    String name();
+
+    Mono<MessageEntity> save(MessageEntity entity);
+
+    Mono<MessageEntity> findById(String id);
+
+    Flux<MessageEntity> find(MessageQuery query);
+
+    // Unordered full scan for maintenance jobs; not sampled by the slow-query detector.
+    Flux<MessageEntity> findAll();
+
+    Mono<Void> deleteAll();
+
+    Mono<Void> createIndex(IndexDefinition index);
+}
@@ -0,0 +1,170 @@
+package il.ac.afeka.cloud.reactivemessagingservice.dal;
+
+import org.springframework.data.domain.Pageable;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Immutable description of a message search: optional predicates, paging/sort and projection.
+ * Executed by {@link MessageQueryEngine}, which builds a fresh Mongo {@code Query} from it on every
+ * call (see {@code MessageQueryEngine.toQuery}); in-memory partitions evaluate it directly.
+ */
+public final class MessageQuery {
+
+    /**
+     * Keyset position for cursor paging: messages strictly after this one in
+     * (publicationTimestamp desc, id asc) order.
+     */
+    public record Cursor(Instant publicationTimestamp, String id) { }
+
+    private final String target;
+    private final String sender;
+    private final boolean urgentOnly;
+    private final Instant from;
+    private final Instant to;
+    private final Cursor after;
+    private final String text;
+    private final TextSearchOrder textOrder;
+    private final Pageable pageable;
+    private final List<String> fields;
+
+    private MessageQuery(Builder b) {
+        this.target = b.target;
+        this.sender = b.sender;
+        this.urgentOnly = b.urgentOnly;
+        this.from = b.from;
+        this.to = b.to;
+        this.after = b.after;
+        this.text = b.text;
+        this.textOrder = b.textOrder;
+        this.pageable = b.pageable;
+        this.fields = b.fields;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    // Same filters and projection, different page.
+    public MessageQuery withPage(Pageable pageable) {
+        Builder b = new Builder();
+        b.target = target;
+        b.sender = sender;
+        b.urgentOnly = urgentOnly;
+        b.from = from;
+        b.to = to;
+        b.after = after;
+        b.text = text;
+        b.textOrder = textOrder;
+        b.fields = fields;
+        b.pageable = pageable;
+        return b.build();
+    }
+
+    public String getTarget() { return target; }
+
+    public String getSender() { return sender; }
+
+    public boolean isUrgentOnly() { return urgentOnly; }
+
+    public Instant getFrom() { return from; }
+
+    public Instant getTo() { return to; }
+
+    public Cursor getAfter() { return after; }
+
+    public String getText() { return text; }
+
+    public TextSearchOrder getTextOrder() { return textOrder; }
+
+    public Pageable getPageable() { return pageable; }
+
+    public List<String> getFields() { return fields; }
+
+    /**
+     * Which filters are set, without their values, e.g. {@code target+urgent} or
+     * {@code text(relevance)+target}. Used to group queries in diagnostics.
+     */
+    public String shape() {
+        List<String> parts = new ArrayList<>();
+        if (text != null) parts.add("text(" + textOrder.name().toLowerCase(Locale.ROOT) + ")");
+        if (target != null) parts.add("target");
+        if (sender != null) parts.add("sender");
+        if (urgentOnly) parts.add("urgent");
+        if (from != null) parts.add("from");
+        if (to != null) parts.add("to");
+        if (after != null) parts.add("after");
+        String rv = parts.isEmpty() ? "all" : String.join("+", parts);
+        return fields.isEmpty() ? rv : rv + " fields=" + fields;
+    }
+
+    public static final class Builder {
+        private String target;
+        private String sender;
+        private boolean urgentOnly;
+        private Instant from;
+        private Instant to;
+        private Cursor after;
+        private String text;
+        private TextSearchOrder textOrder = TextSearchOrder.TIMESTAMP;
+        private Pageable pageable = Pageable.unpaged();
+        private List<String> fields = List.of();
+
+        private Builder() { }
+
+        public Builder target(String target) {
+            this.target = target;
+            return this;
+        }
+
+        public Builder sender(String sender) {
+            this.sender = sender;
+            return this;
+        }
+
+        public Builder urgentOnly() {
+            this.urgentOnly = true;
+            return this;
+        }
+
+        // publicationTimestamp >= from
+        public Builder from(Instant from) {
+            this.from = from;
+            return this;
+        }
+
+        // publicationTimestamp < to
+        public Builder to(Instant to) {
+            this.to = to;
+            return this;
+        }
+
+        public Builder after(Cursor after) {
+            this.after = after;
+            return this;
+        }
+
+        public Builder text(String text, TextSearchOrder order) {
+            this.text = text;
+            this.textOrder = order;
+            return this;
+        }
+
+        public Builder page(Pageable pageable) {
+            this.pageable = pageable;
+            return this;
+        }
+
+        // Entity properties to return; empty means the whole document.
+        public Builder include(String... fields) {
+            this.fields = List.of(fields);
+            return this;
+        }
+
+        public MessageQuery build() {
+            return new MessageQuery(this);
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package il.ac.afeka.cloud.reactivemessagingservice.dal;
+
+import com.mongodb.ExplainVerbosity;
+import il.ac.afeka.cloud.reactivemessagingservice.model.MessageEntity;
+import org.bson.Document;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.convert.QueryMapper;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.TextCriteria;
+import org.springframework.data.mongodb.core.query.TextQuery;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Single execution path for every message search.
+ * <p>
+ * A {@link MessageQuery} is translated by one fixed set of filters, always combined in the same
+ * order under a single {@code $and}, so searches of the same kind produce the same Mongo query
+ * shape and use the same index.
+ * <p>
+ * One engine exists per Mongo partition (see {@link MongoMessagePartition}).
+ */
+public class MessageQueryEngine {
+
+    private enum Filter {
+        TARGET(q -> q.getTarget() != null,
+                q -> Criteria.where("target").is(q.getTarget())),
+        SENDER(q -> q.getSender() != null,
+                q -> Criteria.where("sender").is(q.getSender())),
+        URGENT(MessageQuery::isUrgentOnly,
+                q -> Criteria.where("urgent").is(true)),
+        FROM(q -> q.getFrom() != null,
+                q -> Criteria.where("publicationTimestamp").gte(Date.from(q.getFrom()))),
+        TO(q -> q.getTo() != null,
+                q -> Criteria.where("publicationTimestamp").lt(Date.from(q.getTo()))),
+        AFTER(q -> q.getAfter() != null,
+                q -> new Criteria().orOperator(
+                        Criteria.where("publicationTimestamp").lt(Date.from(q.getAfter().publicationTimestamp())),
+                        Criteria.where("publicationTimestamp").is(Date.from(q.getAfter().publicationTimestamp()))
+                                .and("id").gt(q.getAfter().id())));
+
+        private final Predicate<MessageQuery> present;
+        private final Function<MessageQuery, Criteria> bind;
+
+        Filter(Predicate<MessageQuery> present, Function<MessageQuery, Criteria> bind) {
+            this.present = present;
+            this.bind = bind;
+        }
+    }
+
+    private final String partition;
+    private final ReactiveMongoTemplate mongo;
+    private final SlowQueryDetector slowQueries;
+    private final QueryMapper queryMapper;
+
+    public MessageQueryEngine(String partition, ReactiveMongoTemplate mongo, SlowQueryDetector slowQueries) {
+        this.partition = partition;
+        this.mongo = mongo;
+        this.slowQueries = slowQueries;
+        this.queryMapper = new QueryMapper(mongo.getConverter());
+    }
+
+    public Flux<MessageEntity> find(MessageQuery query) {
+        return slowQueries.track(partition, query,
+                Flux.defer(() -> mongo.find(toQuery(query), MessageEntity.class)),
+                this::explain);
+    }
+
+    /**
+     * Runs the query through {@code explain} with execution stats
+     * (winning plan, keys/docs examined, documents returned).
+     */
+    public Mono<Document> explain(MessageQuery query) {
+        return Mono.defer(() -> {
+            Query q = toQuery(query);
+            MongoPersistentEntity<?> entity =
+                    mongo.getConverter().getMappingContext().getRequiredPersistentEntity(MessageEntity.class);
+
+            Document filter = queryMapper.getMappedObject(q.getQueryObject(), entity);
+            Document fields = explainFields(q, entity);
+            Document sort = queryMapper.getMappedSort(q.getSortObject(), entity);
+
+            return mongo.getCollection(mongo.getCollectionName(MessageEntity.class))
+                    .flatMap(collection -> Mono.from(collection.find(filter)
+                            .projection(fields)
+                            .sort(sort)
+                            .skip((int) q.getSkip())
+                            .limit(q.getLimit())
+                            .explain(ExplainVerbosity.EXECUTION_STATS)));
+        });
+    }
+
+    // As ReactiveMongoTemplate does for find(): the @TextScore property maps to {$meta: "textScore"},
+    // which MongoDB rejects ("query requires text score metadata") unless the query has $text.
+    Document explainFields(Query q, MongoPersistentEntity<?> entity) {
+        Document fields = queryMapper.getMappedFields(q.getFieldsObject(), entity);
+        if (entity.hasTextScoreProperty() && !q.getQueryObject().containsKey("$text")) {
+            fields.remove(entity.getTextScoreProperty().getFieldName());
+        }
+        return fields;
+    }
+
+    Query toQuery(MessageQuery q) {
+        Query query;
+        if (q.getText() != null) {
+            TextQuery textQuery = TextQuery.queryText(TextCriteria.forDefaultLanguage().matching(q.getText()));
+            query = q.getTextOrder() == TextSearchOrder.RELEVANCE ? textQuery.sortByScore() : textQuery;
+        } else {
+            query = new Query();
+        }
+
+        List<Criteria> criteria = new ArrayList<>();
+        for (Filter filter : Filter.values()) {
+            if (filter.present.test(q)) {
+                criteria.add(filter.bind.apply(q));
+            }
+        }
+        if (!criteria.isEmpty()) {
+            query.addCriteria(new Criteria().andOperator(criteria));
+        }
+        if (!q.getFields().isEmpty()) {
+            query.fields().include(q.getFields().toArray(String[]::new));
+        }
+        query.with(q.getPageable().getSort());
+        if (q.getPageable().isPaged()) {
+            query.skip(q.getPageable().getOffset()).limit(q.getPageable().getPageSize());
+        }
+        return query;
+    }
+}
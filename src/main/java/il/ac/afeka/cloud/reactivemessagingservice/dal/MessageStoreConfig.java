@@ -0,0 +1,73 @@
+package il.ac.afeka.cloud.reactivemessagingservice.dal;
+
+import com.mongodb.ConnectionString;
+import com.mongodb.MongoClientSettings;
+import com.mongodb.reactivestreams.client.MongoClient;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.mongodb.autoconfigure.MongoClientSettingsBuilderCustomizer;
+import org.springframework.boot.mongodb.autoconfigure.ReactiveMongoClientFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.SimpleReactiveMongoDatabaseFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+@Configuration
+public class MessageStoreConfig {
+
+    /**
+     * Without {@code messaging.partitions.uris} all messages live on the application's Mongo
+     * connection ({@code spring.mongodb.uri}). Otherwise each URI is one partition; every URI must
+     * name its database, and partitions may share a server as long as the databases differ.
+     * Partition clients start from Boot's {@link MongoClientSettings} and customizers (SSL bundles,
+     * Netty transport, application customizers); only the connection string is the partition's,
+     * so settings it does not mention (e.g. credentials) are shared with the default connection.
+     */
+    @Bean
+    @Profile("!inmemory")
+    public PartitionedMessageStore mongoMessageStore(
+            ReactiveMongoTemplate template,
+            SlowQueryDetector slowQueries,
+            MongoClientSettings settings,
+            ObjectProvider<MongoClientSettingsBuilderCustomizer> customizers,
+            @Value("${messaging.partitions.uris:}") List<String> uris) {
+
+        List<String> configured = uris.stream().map(String::trim).filter(uri -> !uri.isEmpty()).toList();
+        if (configured.isEmpty()) {
+            return new PartitionedMessageStore(List.of(
+                    new MongoMessagePartition("default", template, slowQueries, null)));
+        }
+
+        List<MessagePartition> partitions = new ArrayList<>();
+        for (int i = 0; i < configured.size(); i++) {
+            ConnectionString connection = new ConnectionString(configured.get(i));
+            if (connection.getDatabase() == null) {
+                throw new IllegalArgumentException("messaging.partitions.uris[" + i + "] must name a database");
+            }
+            // applied after Boot's customizers, so it replaces spring.mongodb.uri for this client
+            MongoClientSettingsBuilderCustomizer partitionConnection = builder -> builder.applyConnectionString(connection);
+            MongoClient client = new ReactiveMongoClientFactory(
+                    Stream.concat(customizers.orderedStream(), Stream.of(partitionConnection)).toList())
+                    .createMongoClient(settings);
+            ReactiveMongoTemplate partitionTemplate = new ReactiveMongoTemplate(
+                    new SimpleReactiveMongoDatabaseFactory(client, connection.getDatabase()),
+                    template.getConverter());
+            partitions.add(new MongoMessagePartition("p" + i, partitionTemplate, slowQueries, client));
+        }
+        return new PartitionedMessageStore(partitions);
+    }
+
+    @Bean
+    @Profile("inmemory")
+    public PartitionedMessageStore inMemoryMessageStore(@Value("${messaging.partitions.count:1}") int count) {
+        List<MessagePartition> partitions = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            partitions.add(new InMemoryMessagePartition("p" + i));
+        }
+        return new PartitionedMessageStore(partitions);
+    }
+}
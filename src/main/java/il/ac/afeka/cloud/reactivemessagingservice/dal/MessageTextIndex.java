@@ -0,0 +1,19 @@
+package il.ac.afeka.cloud.reactivemessagingservice.dal;
+
+import il.ac.afeka.cloud.reactivemessagingservice.model.MessageEntity;
+import org.springframework.data.domain.Pageable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Full-text index over message titles.
+ * Words in {@code text} are OR-ed, {@code target} (optional) restricts the search to a single inbox.
+ */
+public interface MessageTextIndex {
+
+    Mono<Void> index(MessageEntity entity);
+
+    Mono<Void> clear();
+
+    Flux<MessageEntity> search(String text, String target, TextSearchOrder order, Pageable pageable);
+}
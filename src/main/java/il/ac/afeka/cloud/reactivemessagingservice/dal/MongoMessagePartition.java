@@ -0,0 +1,68 @@
+package il.ac.afeka.cloud.reactivemessagingservice.dal;
+
+import com.mongodb.reactivestreams.client.MongoClient;
+import il.ac.afeka.cloud.reactivemessagingservice.model.MessageEntity;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.query.Query;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+public class MongoMessagePartition implements MessagePartition, AutoCloseable {
+
+    private final String name;
+    private final ReactiveMongoTemplate template;
+    private final MessageQueryEngine queryEngine;
+    // only set when this partition created its own client (null for the application's default connection)
+    private final MongoClient ownedClient;
+
+    public MongoMessagePartition(String name, ReactiveMongoTemplate template, SlowQueryDetector slowQueries,
+                                 MongoClient ownedClient) {
+        this.name = name;
+        this.template = template;
+        this.queryEngine = new MessageQueryEngine(name, template, slowQueries);
+        this.ownedClient = ownedClient;
+    }
+
+    @Override
+    public String name() {
+        return name;
+    }
+
+    @Override
+    public Mono<MessageEntity> save(MessageEntity entity) {
+        return template.save(entity);
+    }
+
+    @Override
+    public Mono<MessageEntity> findById(String id) {
+        return template.findById(id, MessageEntity.class);
+    }
+
+    @Override
+    public Flux<MessageEntity> find(MessageQuery query) {
+        return queryEngine.find(query);
+    }
+
+    @Override
+    public Flux<MessageEntity> findAll() {
+        return template.findAll(MessageEntity.class);
+    }
+
+    @Override
+    public Mono<Void> deleteAll() {
+        return template.remove(new Query(), MessageEntity.class).then();
+    }
+
+    @Override
+    public Mono<Void> createIndex(IndexDefinition index) {
+        return template.indexOps(MessageEntity.class).createIndex(index).then();
+    }
+
+    @Override
+    public void close() {
+        if (ownedClient != null) {
+            ownedClient.close();
+        }
+    }
+}
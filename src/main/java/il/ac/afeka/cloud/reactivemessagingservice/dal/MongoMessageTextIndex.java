@@ -0,0 +1,75 @@
+package il.ac.afeka.cloud.reactivemessagingservice.dal;
+
+import il.ac.afeka.cloud.reactivemessagingservice.error.BadRequestException;
+import il.ac.afeka.cloud.reactivemessagingservice.model.MessageEntity;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.core.index.CompoundIndexDefinition;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import java.time.Duration;
+
+/**
+ * Text search backed by a MongoDB text index on {@code title} (created on every partition).
+ * The index is maintained by Mongo itself, so {@link #index} and {@link #clear} are no-ops.
+ * <p>
+ * With {@code messaging.text-search.scope-by-target=true} the index is created as the compound
+ * {@code {target: 1, title: "text"}}, which keeps every inbox search inside a single index prefix
+ * but makes {@code target} mandatory for text searches.
+ */
+@Component
+@Profile("!inmemory")
+public class MongoMessageTextIndex implements MessageTextIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(MongoMessageTextIndex.class);
+
+    private final PartitionedMessageStore store;
+    private final boolean scopeByTarget;
+    private final Mono<Void> textIndexReady;
+
+    public MongoMessageTextIndex(
+            PartitionedMessageStore store,
+            @Value("${messaging.text-search.scope-by-target:false}") boolean scopeByTarget) {
+        this.store = store;
+        this.scopeByTarget = scopeByTarget;
+
+        Document keys = scopeByTarget
+                ? new Document("target", 1).append("title", "text")
+                : new Document("title", "text");
+
+        // Created lazily on first search; a failure is not cached so the next search retries.
+        this.textIndexReady = Mono.defer(() -> store.createIndex(new CompoundIndexDefinition(keys)))
+                .doOnError(e -> log.warn("Could not create text index {}: {}", keys.toJson(), e.getMessage()))
+                .cache(v -> Duration.ZERO, e -> Duration.ZERO, () -> Duration.ofMillis(Long.MAX_VALUE));
+    }
+
+    @Override
+    public Mono<Void> index(MessageEntity entity) {
+        return Mono.empty();
+    }
+
+    @Override
+    public Mono<Void> clear() {
+        return Mono.empty();
+    }
+
+    @Override
+    public Flux<MessageEntity> search(String text, String target, TextSearchOrder order, Pageable pageable) {
+        if (scopeByTarget && target == null) {
+            return Flux.error(new BadRequestException("target is required for text search"));
+        }
+
+        MessageQuery query = MessageQuery.builder()
+                .text(text, order)
+                .target(target)
+                .page(pageable)
+                .build();
+
+        return textIndexReady.thenMany(store.find(query));
+    }
+}
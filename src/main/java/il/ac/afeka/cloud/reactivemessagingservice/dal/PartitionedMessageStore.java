@@ -0,0 +1,101 @@
+package il.ac.afeka.cloud.reactivemessagingservice.dal;
+
+import il.ac.afeka.cloud.reactivemessagingservice.model.MessageEntity;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Hash-partitions messages by {@code target} across N {@link MessagePartition}s.
+ * <p>
+ * Recipient-scoped queries go to the single partition owning that target. Everything else is sent
+ * to all partitions in parallel, each asked for its first {@code offset + size} rows in the query's
+ * sort order, and the sorted streams are k-way merged before the requested page is cut out.
+ * <p>
+ * The partition of a message is {@code floorMod(target.hashCode(), N)}; changing N requires
+ * re-distributing the existing data.
+ */
+public class PartitionedMessageStore implements AutoCloseable {
+
+    private final List<MessagePartition> partitions;
+
+    public PartitionedMessageStore(List<MessagePartition> partitions) {
+        if (partitions.isEmpty()) {
+            throw new IllegalArgumentException("at least one partition is required");
+        }
+        this.partitions = List.copyOf(partitions);
+    }
+
+    public List<MessagePartition> partitions() {
+        return partitions;
+    }
+
+    public MessagePartition partitionFor(String target) {
+        return partitions.get(Math.floorMod(target.hashCode(), partitions.size()));
+    }
+
+    public Mono<MessageEntity> save(MessageEntity entity) {
+        return Mono.defer(() -> partitionFor(entity.getTarget()).save(entity));
+    }
+
+    public Mono<MessageEntity> findById(String id) {
+        return Flux.fromIterable(partitions)
+                .flatMap(p -> p.findById(id))
+                .next();
+    }
+
+    public Flux<MessageEntity> find(MessageQuery query) {
+        if (query.getTarget() != null) {
+            return Flux.defer(() -> partitionFor(query.getTarget()).find(query));
+        }
+        if (partitions.size() == 1) {
+            return partitions.get(0).find(query);
+        }
+
+        Pageable pageable = query.getPageable();
+        Comparator<MessageEntity> order = query.getText() != null && query.getTextOrder() == TextSearchOrder.RELEVANCE
+                ? MessageOrder.byScoreThen(pageable.getSort())
+                : MessageOrder.of(pageable.getSort());
+
+        // every partition returns its own first offset + size rows; the merged stream is then cut to the page
+        MessageQuery perPartition = pageable.isUnpaged()
+                ? query
+                : query.withPage(PageRequest.of(0,
+                        Math.toIntExact(pageable.getOffset() + pageable.getPageSize()), pageable.getSort()));
+
+        @SuppressWarnings("unchecked")
+        Flux<MessageEntity>[] sources = partitions.stream()
+                .map(p -> p.find(perPartition))
+                .toArray(Flux[]::new);
+
+        Flux<MessageEntity> merged = Flux.mergeComparing(order, sources);
+        return pageable.isUnpaged()
+                ? merged
+                : merged.skip(pageable.getOffset()).take(pageable.getPageSize());
+    }
+
+    public Mono<Void> deleteAll() {
+        return Flux.fromIterable(partitions)
+                .flatMap(MessagePartition::deleteAll)
+                .then();
+    }
+
+    public Mono<Void> createIndex(IndexDefinition index) {
+        return Flux.fromIterable(partitions)
+                .flatMap(p -> p.createIndex(index))
+                .then();
+    }
+
+    @Override
+    public void close() throws Exception {
+        for (MessagePartition partition : partitions) {
+            if (partition instanceof AutoCloseable closeable) {
+                closeable.close();
+            }
+        }
+    }
+}
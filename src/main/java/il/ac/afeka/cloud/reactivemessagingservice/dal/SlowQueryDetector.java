@@ -0,0 +1,185 @@
+package il.ac.afeka.cloud.reactivemessagingservice.dal;
+
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+
+/**
+ * Keeps the N slowest searches seen since startup (or the last reset).
+ * <p>
+ * Only a {@code sample-rate} fraction of searches is timed, and timing is two {@code nanoTime}
+ * calls, so this can stay on in production. A search slower than {@code threshold-ms} that makes
+ * it into the top N is re-run through explain() in the background to capture its plan
+ * (COLLSCAN vs index) and documents examined vs returned. Explain re-executes the query, so it
+ * runs at most once per query shape every {@code explain-interval-ms}; other samples of that
+ * shape reuse the last plan captured.
+ */
+@Component
+public class SlowQueryDetector {
+
+    private static final Logger log = LoggerFactory.getLogger(SlowQueryDetector.class);
+
+    private final long thresholdNanos;
+    private final double sampleRate;
+    private final int topN;
+    private final long explainIntervalNanos;
+
+    // last explain() started per partition and shape; replaced only once it is older than the interval
+    private record Explained(long startedAtNanos, SlowQuerySample sample) { }
+    private final ConcurrentMap<String, Explained> explained = new ConcurrentHashMap<>();
+
+    // min-heap on latency: the head is the first sample to evict
+    private final PriorityQueue<SlowQuerySample> slowest =
+            new PriorityQueue<>(Comparator.comparingLong(SlowQuerySample::getLatencyMillis));
+
+    public SlowQueryDetector(
+            @Value("${messaging.slow-query.threshold-ms:200}") long thresholdMillis,
+            @Value("${messaging.slow-query.sample-rate:1.0}") double sampleRate,
+            @Value("${messaging.slow-query.top-n:20}") int topN,
+            @Value("${messaging.slow-query.explain-interval-ms:60000}") long explainIntervalMillis) {
+        this.thresholdNanos = thresholdMillis * 1_000_000L;
+        this.sampleRate = sampleRate;
+        this.topN = topN;
+        this.explainIntervalNanos = explainIntervalMillis * 1_000_000L;
+    }
+
+    public <T> Flux<T> track(String partition, MessageQuery query, Flux<T> results,
+                             Function<MessageQuery, Mono<Document>> explainer) {
+        if (topN <= 0) {
+            return results;
+        }
+        // decided per subscription: a re-subscribed (retried, repeated) search is sampled again
+        return Flux.defer(() -> {
+            if (ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+                return results;
+            }
+            long start = System.nanoTime();
+            // Cancelled executions count too: a partitioned search cancels the partitions still
+            // streaming once the merged page is full, and those are the slow ones. Their latency
+            // is then only a lower bound.
+            return results
+                    .doOnComplete(() -> finished(partition, query, start, false, explainer))
+                    .doOnError(e -> finished(partition, query, start, false, explainer))
+                    .doOnCancel(() -> finished(partition, query, start, true, explainer));
+        });
+    }
+
+    public List<SlowQuerySample> top() {
+        List<SlowQuerySample> rv;
+        synchronized (slowest) {
+            rv = new ArrayList<>(slowest);
+        }
+        rv.sort(Comparator.comparingLong(SlowQuerySample::getLatencyMillis).reversed());
+        return rv;
+    }
+
+    public void reset() {
+        synchronized (slowest) {
+            slowest.clear();
+        }
+        explained.clear();
+    }
+
+    private void finished(String partition, MessageQuery query, long start, boolean cancelled,
+                          Function<MessageQuery, Mono<Document>> explainer) {
+        long elapsed = System.nanoTime() - start;
+        if (elapsed >= thresholdNanos) {
+            record(partition, query, elapsed / 1_000_000L, cancelled, explainer);
+        }
+    }
+
+    private void record(String partition, MessageQuery query, long latencyMillis, boolean cancelled,
+                        Function<MessageQuery, Mono<Document>> explainer) {
+        SlowQuerySample sample = new SlowQuerySample(partition, query.shape(), query.getTarget(),
+                query.getSender(), latencyMillis, cancelled, Instant.now());
+
+        synchronized (slowest) {
+            if (slowest.size() >= topN) {
+                if (slowest.peek().getLatencyMillis() >= latencyMillis) {
+                    return;
+                }
+                slowest.poll();
+            }
+            slowest.add(sample);
+        }
+
+        log.warn("Slow query {} on {} ({}{} ms) target={} sender={}",
+                sample.getShape(), partition, cancelled ? "cancelled after >= " : "", latencyMillis,
+                sample.getTarget(), sample.getSender());
+
+        // the same shape can get a different plan on another partition (indexes, data size)
+        String key = partition + "/" + sample.getShape();
+        Explained previous = explained.get(key);
+        long now = System.nanoTime();
+        if (previous != null && now - previous.startedAtNanos() < explainIntervalNanos) {
+            // null while that explain() is still running
+            sample.setExplain(previous.sample().getExplain());
+            return;
+        }
+        Explained claim = new Explained(now, sample);
+        boolean claimed = previous == null
+                ? explained.putIfAbsent(key, claim) == null
+                : explained.replace(key, previous, claim);
+        if (!claimed) {
+            return;
+        }
+
+        explainer.apply(query)
+                .map(SlowQueryDetector::summarize)
+                .subscribe(sample::setExplain,
+                        e -> log.warn("explain() failed for slow query {}: {}", sample.getShape(), e.getMessage()));
+    }
+
+    static SlowQuerySample.ExplainSummary summarize(Document explain) {
+        List<String> stages = new ArrayList<>();
+        Document planner = explain.get("queryPlanner", Document.class);
+        if (planner != null) {
+            collectStages(planner.get("winningPlan", Document.class), stages);
+        }
+
+        Document stats = explain.get("executionStats", Document.class);
+        return new SlowQuerySample.ExplainSummary(
+                String.join(" > ", stages),
+                stages.contains("COLLSCAN"),
+                stats == null ? -1 : number(stats, "totalKeysExamined"),
+                stats == null ? -1 : number(stats, "totalDocsExamined"),
+                stats == null ? -1 : number(stats, "nReturned"),
+                stats == null ? -1 : number(stats, "executionTimeMillis"));
+    }
+
+    // Walks stage -> inputStage(s); newer servers nest the classic plan under "queryPlan".
+    private static void collectStages(Document plan, List<String> stages) {
+        if (plan == null) {
+            return;
+        }
+        if (plan.containsKey("queryPlan")) {
+            collectStages(plan.get("queryPlan", Document.class), stages);
+            return;
+        }
+        if (plan.getString("stage") != null) {
+            stages.add(plan.getString("stage"));
+        }
+        collectStages(plan.get("inputStage", Document.class), stages);
+        for (Document input : plan.getList("inputStages", Document.class, List.of())) {
+            collectStages(input, stages);
+        }
+    }
+
+    private static long number(Document doc, String key) {
+        Object value = doc.get(key);
+        return value instanceof Number n ? n.longValue() : -1;
+    }
+}
@@ -0,0 +1,59 @@
+package il.ac.afeka.cloud.reactivemessagingservice.dal;
+
+import java.time.Instant;
+
+/**
+ * One search that exceeded the slow-query threshold.
+ * {@code cancelled} marks an execution cut short by its subscriber (e.g. a partition that was still
+ * streaming when the merged page was full); its latency is then a lower bound.
+ * {@code explain} is filled in asynchronously once the explain() round trip completes, so it
+ * may still be null when the sample is first listed.
+ */
+public class SlowQuerySample {
+
+    public record ExplainSummary(
+            String plan,
+            boolean collectionScan,
+            long keysExamined,
+            long docsExamined,
+            long returned,
+            long executionTimeMillis) { }
+
+    private final String partition;
+    private final String shape;
+    private final String target;
+    private final String sender;
+    private final long latencyMillis;
+    private final boolean cancelled;
+    private final Instant observedAt;
+    private volatile ExplainSummary explain;
+
+    public SlowQuerySample(String partition, String shape, String target, String sender,
+                           long latencyMillis, boolean cancelled, Instant observedAt) {
+        this.partition = partition;
+        this.shape = shape;
+        this.target = target;
+        this.sender = sender;
+        this.latencyMillis = latencyMillis;
+        this.cancelled = cancelled;
+        this.observedAt = observedAt;
+    }
+
+    public String getPartition() { return partition; }
+
+    public String getShape() { return shape; }
+
+    public String getTarget() { return target; }
+
+    public String getSender() { return sender; }
+
+    public long getLatencyMillis() { return latencyMillis; }
+
+    public boolean isCancelled() { return cancelled; }
+
+    public Instant getObservedAt() { return observedAt; }
+
+    public ExplainSummary getExplain() { return explain; }
+
+    void setExplain(ExplainSummary explain) { this.explain = explain; }
+}
@@ -0,0 +1,8 @@
+package il.ac.afeka.cloud.reactivemessagingservice.dal;
+
+public enum TextSearchOrder {
+    // best match first, ties broken by newest message
+    RELEVANCE,
+    // newest message first, relevance ignored
+    TIMESTAMP
+}
@@ -0,0 +1,30 @@
+package il.ac.afeka.cloud.reactivemessagingservice.error;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * 429 with the quota of the bucket that rejected the request
+ * ({@code X-RateLimit-Limit}, {@code X-RateLimit-Remaining}, {@code Retry-After} in seconds).
+ */
+public class TooManyRequestsException extends ResponseStatusException {
+
+    // also set on admitted requests, see ReactiveMessagingController.create
+    public static final String LIMIT_HEADER = "X-RateLimit-Limit";
+    public static final String REMAINING_HEADER = "X-RateLimit-Remaining";
+
+    private final HttpHeaders headers = new HttpHeaders();
+
+    public TooManyRequestsException(String message, long limit, long remaining, long retryAfterMillis) {
+        super(HttpStatus.TOO_MANY_REQUESTS, message);
+        headers.set(LIMIT_HEADER, Long.toString(limit));
+        headers.set(REMAINING_HEADER, Long.toString(remaining));
+        headers.set(HttpHeaders.RETRY_AFTER, Long.toString(Math.max(1, (retryAfterMillis + 999) / 1000)));
+    }
+
+    @Override
+    public HttpHeaders getHeaders() {
+        return headers;
+    }
+}
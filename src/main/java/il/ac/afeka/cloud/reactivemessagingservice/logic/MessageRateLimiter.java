@@ -0,0 +1,122 @@
+package il.ac.afeka.cloud.reactivemessagingservice.logic;
+
+import il.ac.afeka.cloud.reactivemessagingservice.error.TooManyRequestsException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Rate limits {@code create()} per sender and per target.
+ * <p>
+ * A message needs a token from its sender's bucket and from its target's bucket, so one producer
+ * cannot flood the service and many producers cannot flood one recipient. Individual senders can
+ * get their own limit through {@code messaging.rate-limit.sender-overrides}
+ * ({@code email=capacity/refill-per-second}, comma-separated).
+ */
+@Component
+public class MessageRateLimiter {
+
+    public record Stats(
+            boolean enabled,
+            long allowed,
+            long throttledBySender,
+            long throttledByTarget,
+            int senderBuckets,
+            int targetBuckets,
+            long evictedBuckets,
+            long overflowedRequests) { }
+
+    private final boolean enabled;
+    private final TokenBucketLimiter senders;
+    private final TokenBucketLimiter targets;
+
+    private final LongAdder allowed = new LongAdder();
+    private final LongAdder throttledBySender = new LongAdder();
+    private final LongAdder throttledByTarget = new LongAdder();
+
+    public MessageRateLimiter(
+            @Value("${messaging.rate-limit.enabled:true}") boolean enabled,
+            @Value("${messaging.rate-limit.sender.capacity:50}") long senderCapacity,
+            @Value("${messaging.rate-limit.sender.refill-per-second:20}") double senderRefill,
+            @Value("${messaging.rate-limit.sender-overrides:}") List<String> senderOverrides,
+            @Value("${messaging.rate-limit.target.capacity:100}") long targetCapacity,
+            @Value("${messaging.rate-limit.target.refill-per-second:50}") double targetRefill,
+            @Value("${messaging.rate-limit.max-buckets:100000}") int maxBuckets,
+            @Value("${messaging.rate-limit.sweep-interval-ms:10000}") long sweepIntervalMillis) {
+        this.enabled = enabled;
+        this.senders = new TokenBucketLimiter(new TokenBucketLimiter.Limit(senderCapacity, senderRefill),
+                parseOverrides(senderOverrides), maxBuckets, sweepIntervalMillis);
+        this.targets = new TokenBucketLimiter(new TokenBucketLimiter.Limit(targetCapacity, targetRefill),
+                Map.of(), maxBuckets, sweepIntervalMillis);
+    }
+
+    /**
+     * Takes one token for the sender and one for the target (both already normalized).
+     *
+     * @return the quota of whichever bucket has fewer tokens left, for the response headers;
+     *         null when rate limiting is disabled
+     * @throws TooManyRequestsException when either bucket is empty; nothing is consumed then
+     */
+    public TokenBucketLimiter.Decision acquire(String sender, String target) {
+        if (!enabled) {
+            return null;
+        }
+
+        TokenBucketLimiter.Decision bySender = senders.tryAcquire(sender);
+        if (!bySender.allowed()) {
+            throttledBySender.increment();
+            throw tooManyRequests("sender " + sender, bySender);
+        }
+
+        TokenBucketLimiter.Decision byTarget = targets.tryAcquire(target);
+        if (!byTarget.allowed()) {
+            senders.release(sender);
+            throttledByTarget.increment();
+            throw tooManyRequests("target " + target, byTarget);
+        }
+
+        allowed.increment();
+        return byTarget.remaining() < bySender.remaining() ? byTarget : bySender;
+    }
+
+    public Stats stats() {
+        return new Stats(
+                enabled,
+                allowed.sum(),
+                throttledBySender.sum(),
+                throttledByTarget.sum(),
+                senders.size(),
+                targets.size(),
+                senders.evictedCount() + targets.evictedCount(),
+                senders.overflowedCount() + targets.overflowedCount());
+    }
+
+    private static TooManyRequestsException tooManyRequests(String who, TokenBucketLimiter.Decision decision) {
+        return new TooManyRequestsException("Rate limit exceeded for " + who,
+                decision.limit(), decision.remaining(), decision.retryAfterMillis());
+    }
+
+    private static Map<String, TokenBucketLimiter.Limit> parseOverrides(List<String> entries) {
+        Map<String, TokenBucketLimiter.Limit> rv = new HashMap<>();
+        for (String entry : entries) {
+            String trimmed = entry.trim();
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            int eq = trimmed.lastIndexOf('=');
+            int slash = trimmed.indexOf('/', eq + 1);
+            if (eq <= 0 || slash < 0) {
+                throw new IllegalArgumentException(
+                        "messaging.rate-limit.sender-overrides entry must be email=capacity/refill-per-second: " + trimmed);
+            }
+            rv.put(trimmed.substring(0, eq).trim().toLowerCase(Locale.ROOT), new TokenBucketLimiter.Limit(
+                    Long.parseLong(trimmed.substring(eq + 1, slash).trim()),
+                    Double.parseDouble(trimmed.substring(slash + 1).trim())));
+        }
+        return rv;
+    }
+}
@@ -0,0 +1,82 @@
+package il.ac.afeka.cloud.reactivemessagingservice.logic;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cheap change counters used as ETags for the search endpoints.
+ * <p>
+ * Every change takes the next value of one monotonic sequence: a created message stamps its
+ * recipient, and {@code deleteAll()} raises a floor shared by all recipients. A recipient's
+ * version is {@code max(own stamp, floor)}, so it only ever grows and a value is never handed
+ * out again for different content. Stamps are recorded after the write completed, so a version
+ * read before a query never claims more than the query returns.
+ * <p>
+ * Counters are per instance (the tag includes a random instance id), so a client that switches
+ * instances never gets a false 304. Another instance's writes are not seen here, though: with
+ * sticky routing across several instances, {@code messaging.etag.max-staleness-ms} bounds how
+ * long a 304 can hide them by also changing the tag every interval (epoch-aligned). That costs
+ * 304s - a client polling less often than the interval always gets a full response - so it is
+ * off ({@code 0}) by default, which is right for a single instance or non-sticky balancing.
+ */
+@Component
+public class MessageVersions {
+
+    private final String instanceId = UUID.randomUUID().toString().substring(0, 8);
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicLong floor = new AtomicLong();
+    private final Map<String, Long> recipients = new ConcurrentHashMap<>();
+
+    private final int maxRecipients;
+    private final long maxStalenessMillis;
+
+    public MessageVersions(
+            @Value("${messaging.etag.max-recipients:100000}") int maxRecipients,
+            @Value("${messaging.etag.max-staleness-ms:0}") long maxStalenessMillis) {
+        if (maxStalenessMillis < 0) {
+            throw new IllegalArgumentException("messaging.etag.max-staleness-ms must be >= 0: " + maxStalenessMillis);
+        }
+        this.maxRecipients = maxRecipients;
+        this.maxStalenessMillis = maxStalenessMillis;
+    }
+
+    public void messageCreated(String target) {
+        long stamp = sequence.incrementAndGet();
+        if (recipients.size() >= maxRecipients) {
+            // forget everyone at once: raising the floor keeps every version monotonic
+            forgetUpTo(stamp);
+        }
+        recipients.merge(target, stamp, Math::max);
+    }
+
+    public void allDeleted() {
+        forgetUpTo(sequence.incrementAndGet());
+    }
+
+    public String globalTag() {
+        return tag("g" + sequence.get());
+    }
+
+    public String recipientTag(String target) {
+        return tag("r" + Math.max(recipients.getOrDefault(target, 0L), floor.get()));
+    }
+
+    // Raises the floor first, then drops only the stamps it covers. Removal is per entry and
+    // conditional on the value, so a stamp merged concurrently (newer than the floor) survives.
+    private void forgetUpTo(long stamp) {
+        long current = floor.accumulateAndGet(stamp, Math::max);
+        recipients.values().removeIf(own -> own <= current);
+    }
+
+    private String tag(String version) {
+        String rv = instanceId + "-" + version;
+        if (maxStalenessMillis > 0) {
+            rv += "-" + System.currentTimeMillis() / maxStalenessMillis;
+        }
+        return "W/\"" + rv + "\"";
+    }
+}
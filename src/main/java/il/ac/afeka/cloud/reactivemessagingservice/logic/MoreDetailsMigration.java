@@ -0,0 +1,51 @@
+package il.ac.afeka.cloud.reactivemessagingservice.logic;
+
+import il.ac.afeka.cloud.reactivemessagingservice.dal.MessagePartition;
+import il.ac.afeka.cloud.reactivemessagingservice.dal.PartitionedMessageStore;
+import il.ac.afeka.cloud.reactivemessagingservice.model.MessageConverter;
+import il.ac.afeka.cloud.reactivemessagingservice.model.MessageEntity;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Rewrites messages stored before compression was enabled so their large {@code moreDetails}
+ * use the compressed form. Reading never depends on it: both forms are understood by
+ * {@link MessageConverter}, so the migration can run at any time and be repeated safely.
+ */
+@Service
+public class MoreDetailsMigration {
+
+    public record Result(long scanned, long compressed) { }
+
+    private static final int CONCURRENT_WRITES = 8;
+
+    private final PartitionedMessageStore store;
+    private final MessageConverter converter;
+
+    public MoreDetailsMigration(PartitionedMessageStore store, MessageConverter converter) {
+        this.store = store;
+        this.converter = converter;
+    }
+
+    public Mono<Result> compressExisting() {
+        return Flux.fromIterable(store.partitions())
+                .concatMap(this::compressExisting)
+                .reduce(new Result(0, 0), (a, b) -> new Result(a.scanned() + b.scanned(), a.compressed() + b.compressed()));
+    }
+
+    private Mono<Result> compressExisting(MessagePartition partition) {
+        return partition.findAll()
+                .flatMap(entity -> needsCompression(entity)
+                                ? partition.save(entity).thenReturn(1L)
+                                : Mono.just(0L),
+                        CONCURRENT_WRITES)
+                .reduce(new Result(0, 0), (acc, compressed) -> new Result(acc.scanned() + 1, acc.compressed() + compressed));
+    }
+
+    private boolean needsCompression(MessageEntity entity) {
+        return entity.getCompressedMoreDetails() == null
+                && entity.getMoreDetails() != null
+                && converter.setMoreDetails(entity, entity.getMoreDetails());
+    }
+}
@@ -5,6 +5,21 @@ import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 public interface ReactiveMessagingService {
+
+    /**
+     * Optional Reactor context entry for conditional searches: a {@code Predicate<String>} that gets
+     * the version tag (ETag) of the results after the inputs were validated and returns true when
+     * the client already has that version; the search then completes empty without querying.
+     */
+    String NOT_MODIFIED = ReactiveMessagingService.class.getName() + ".notModified";
+
+    /**
+     * Optional Reactor context entry for {@link #create}: a {@code Consumer<TokenBucketLimiter.Decision>}
+     * that gets the remaining rate-limit quota once the message was admitted, so the caller can
+     * report it before the response is written.
+     */
+    String RATE_LIMIT = ReactiveMessagingService.class.getName() + ".rateLimit";
+
     Mono<MessageBoundary> create(MessageBoundary input);
 
     Flux<MessageBoundary> getAll(int page, int size);
@@ -21,5 +36,7 @@ public interface ReactiveMessagingService {
 
     Flux<MessageBoundary> getUrgentBySender(String senderEmail, int page, int size); // bonus
 
+    Flux<MessageBoundary> searchByText(String text, String recipientEmail, String order, int page, int size);
+
     Mono<Void> deleteAll();
 }
@@ -1,6 +1,9 @@
 package il.ac.afeka.cloud.reactivemessagingservice.logic;
 
-import il.ac.afeka.cloud.reactivemessagingservice.dal.ReactiveMessageRepository;
+import il.ac.afeka.cloud.reactivemessagingservice.dal.MessageQuery;
+import il.ac.afeka.cloud.reactivemessagingservice.dal.MessageTextIndex;
+import il.ac.afeka.cloud.reactivemessagingservice.dal.PartitionedMessageStore;
+import il.ac.afeka.cloud.reactivemessagingservice.dal.TextSearchOrder;
 import il.ac.afeka.cloud.reactivemessagingservice.error.BadRequestException;
 import il.ac.afeka.cloud.reactivemessagingservice.model.MessageBoundary;
 import il.ac.afeka.cloud.reactivemessagingservice.model.MessageConverter;
@@ -16,6 +19,9 @@ import java.util.Collections;
 import java.util.Locale;
 import java.util.Map;
 import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
 import java.util.regex.Pattern;
 
 @Service
@@ -30,12 +36,20 @@ public class ReactiveMessagingServiceImpl implements ReactiveMessagingService {
     private static final Pattern EMAIL_PATTERN =
             Pattern.compile("^[^@\\s]+@[^@\\s]+\\.[^@\\s]+$");
 
-    private final ReactiveMessageRepository repo;
+    private final PartitionedMessageStore store;
+    private final MessageTextIndex textIndex;
     private final MessageConverter converter;
-
-    public ReactiveMessagingServiceImpl(ReactiveMessageRepository repo, MessageConverter converter) {
-        this.repo = repo;
+    private final MessageVersions versions;
+    private final MessageRateLimiter rateLimiter;
+
+    public ReactiveMessagingServiceImpl(PartitionedMessageStore store, MessageTextIndex textIndex,
+                                        MessageConverter converter, MessageVersions versions,
+                                        MessageRateLimiter rateLimiter) {
+        this.store = store;
+        this.textIndex = textIndex;
         this.converter = converter;
+        this.versions = versions;
+        this.rateLimiter = rateLimiter;
     }
 
     @Override
@@ -52,7 +66,16 @@ public class ReactiveMessagingServiceImpl implements ReactiveMessagingService {
                 // urgent is required (Boolean must not be null)
                 .filter(boundary -> boundary.getUrgent() != null)
                 .switchIfEmpty(Mono.error(new BadRequestException("Urgent field is required")))
-                .map(boundary -> {
+                // only valid messages take a token; throttled ones fail with 429 before anything is stored
+                .flatMap(boundary -> Mono.deferContextual(ctx -> {
+                    TokenBucketLimiter.Decision quota = rateLimiter.acquire(boundary.getSender(), boundary.getTarget());
+                    if (quota != null) {
+                        ctx.<Consumer<TokenBucketLimiter.Decision>>getOrEmpty(RATE_LIMIT)
+                                .ifPresent(report -> report.accept(quota));
+                    }
+                    return Mono.just(boundary);
+                }))
+                .flatMap(boundary -> {
                     boolean urgent = boundary.getUrgent();
 
                     Map<String, Object> moreDetails =
@@ -61,34 +84,27 @@ public class ReactiveMessagingServiceImpl implements ReactiveMessagingService {
                     String id = UUID.randomUUID().toString();
                     Instant publicationTimestamp = Instant.now();
 
-                    return converter.toNewEntity(boundary, id, publicationTimestamp, urgent, moreDetails);
-                })
-                .flatMap(repo::save)
-                .map(converter::toBoundary);
+                    return store.save(converter.toNewEntity(boundary, id, publicationTimestamp, urgent, moreDetails))
+                            .flatMap(saved -> textIndex.index(saved).thenReturn(saved))
+                            .doOnNext(saved -> versions.messageCreated(saved.getTarget()))
+                            // echo the validated input details; compressed ones are only inflated on reads
+                            .map(saved -> converter.toBoundary(saved, moreDetails));
+                });
     }
 
     @Override
     public Flux<MessageBoundary> getAll(int page, int size) {
-        return Mono.just(page)
-                .map(p -> pageRequest(p, size))
-                .flatMapMany(repo::findAllByIdNotNull)
-                .map(converter::toBoundary);
+        return search(page, size, query -> query);
     }
 
     @Override
     public Flux<MessageBoundary> getByRecipient(String recipientEmail, int page, int size) {
-        return Mono.just(page)
-                .map(p -> pageRequest(p, size))
-                .flatMapMany(pr -> repo.findAllByTarget(validateEmail("recipientEmail", recipientEmail), pr))
-                .map(converter::toBoundary);
+        return search(page, size, query -> query.target(validateEmail("recipientEmail", recipientEmail)));
     }
 
     @Override
     public Flux<MessageBoundary> getBySender(String senderEmail, int page, int size) {
-        return Mono.just(page)
-                .map(p -> pageRequest(p, size))
-                .flatMapMany(pr -> repo.findAllBySender(validateEmail("senderEmail", senderEmail), pr))
-                .map(converter::toBoundary);
+        return search(page, size, query -> query.sender(validateEmail("senderEmail", senderEmail)));
     }
 
     @Override
@@ -96,37 +112,70 @@ public class ReactiveMessagingServiceImpl implements ReactiveMessagingService {
         return Mono.justOrEmpty(id)
                 .filter(v -> !v.isBlank())
                 .switchIfEmpty(Mono.error(new BadRequestException("id value is required")))
-                .flatMap(repo::findById)
+                .filterWhen(validId -> changed(null))
+                .flatMap(store::findById)
                 .map(converter::toBoundary);
     }
 
     @Override
     public Flux<MessageBoundary> getUrgent(int page, int size) {
-        return Mono.just(page)
-                .map(p -> pageRequest(p, size))
-                .flatMapMany(repo::findAllByUrgentIsTrue)
-                .map(converter::toBoundary);
+        return search(page, size, MessageQuery.Builder::urgentOnly);
     }
 
     @Override
     public Flux<MessageBoundary> getUrgentByRecipient(String recipientEmail, int page, int size) {
-        return Mono.just(page)
-                .map(p -> pageRequest(p, size))
-                .flatMapMany(pr -> repo.findAllByUrgentIsTrueAndTarget(validateEmail("recipientEmail", recipientEmail), pr))
-                .map(converter::toBoundary);
+        return search(page, size, query -> query.urgentOnly().target(validateEmail("recipientEmail", recipientEmail)));
     }
 
     @Override
     public Flux<MessageBoundary> getUrgentBySender(String senderEmail, int page, int size) {
+        return search(page, size, query -> query.urgentOnly().sender(validateEmail("senderEmail", senderEmail)));
+    }
+
+    @Override
+    public Flux<MessageBoundary> searchByText(String text, String recipientEmail, String order, int page, int size) {
         return Mono.just(page)
                 .map(p -> pageRequest(p, size))
-                .flatMapMany(pr -> repo.findAllByUrgentIsTrueAndSender(validateEmail("senderEmail", senderEmail), pr))
+                .flatMapMany(pr -> {
+                    validateNotBlank("value", text);
+                    String target = (recipientEmail == null || recipientEmail.isBlank())
+                            ? null
+                            : validateEmail("recipientEmail", recipientEmail);
+                    TextSearchOrder textOrder = textSearchOrder(order);
+                    return changed(target).flatMapMany(fresh -> fresh
+                            ? textIndex.search(text.trim(), target, textOrder, pr)
+                            : Flux.empty());
+                })
                 .map(converter::toBoundary);
     }
 
     @Override
     public Mono<Void> deleteAll() {
-        return repo.deleteAll();
+        return store.deleteAll()
+                .then(textIndex.clear())
+                .then(Mono.fromRunnable(versions::allDeleted));
+    }
+
+    // ETag for search results: scoped to one inbox, or global when target is null
+    private String versionTag(String target) {
+        return target == null ? versions.globalTag() : versions.recipientTag(target);
+    }
+
+    // False when the caller's NOT_MODIFIED check says it already has the current version.
+    // Read before the query runs, so the tag never claims more than the results contain.
+    private Mono<Boolean> changed(String target) {
+        return Mono.deferContextual(ctx -> Mono.just(ctx.<Predicate<String>>getOrEmpty(NOT_MODIFIED)
+                .map(notModified -> !notModified.test(versionTag(target)))
+                .orElse(true)));
+    }
+
+    // Shared path for all paged searches: filters are applied inside the chain so validation errors become onError.
+    private Flux<MessageBoundary> search(int page, int size, UnaryOperator<MessageQuery.Builder> filters) {
+        return Mono.just(page)
+                .map(p -> filters.apply(MessageQuery.builder().page(pageRequest(p, size))).build())
+                .filterWhen(query -> changed(query.getTarget()))
+                .flatMapMany(store::find)
+                .map(converter::toBoundary);
     }
 
     private PageRequest pageRequest(Integer page, Integer size) {
@@ -143,6 +192,17 @@ public class ReactiveMessagingServiceImpl implements ReactiveMessagingService {
         return PageRequest.of(p, s, DEFAULT_SORT);
     }
 
+    private TextSearchOrder textSearchOrder(String order) {
+        if (order == null || order.isBlank()) {
+            return TextSearchOrder.RELEVANCE;
+        }
+        try {
+            return TextSearchOrder.valueOf(order.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("order must be one of: relevance, timestamp");
+        }
+    }
+
     private String validateEmail(String field, String email) {
         String normalized = normalizeEmail(email);
 
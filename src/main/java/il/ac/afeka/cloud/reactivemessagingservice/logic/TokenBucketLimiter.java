@@ -0,0 +1,209 @@
+package il.ac.afeka.cloud.reactivemessagingservice.logic;
+
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Keyed token buckets without locks.
+ * <p>
+ * Each key owns an {@link AtomicReference} to an immutable {@code Bucket} (tokens, last update).
+ * Acquiring refills the bucket from the elapsed time and compare-and-sets the new state, so
+ * concurrent requests for the same key retry instead of blocking, and requests for different keys
+ * never touch the same state. A denied request changes nothing.
+ * <p>
+ * Memory is bounded: a bucket that has refilled to capacity is indistinguishable from a new one,
+ * so a periodic sweep drops those. The sweep walks every bucket, so it runs on a separate
+ * {@link Scheduler} instead of the caller's (event-loop) thread. If {@code maxBuckets} keys are
+ * still active, further keys share a fixed array of overflow buckets by hash - they are still
+ * limited, only less precisely.
+ */
+public class TokenBucketLimiter {
+
+    public record Limit(long capacity, double refillPerSecond) {
+
+        public Limit {
+            if (capacity < 1 || refillPerSecond <= 0) {
+                throw new IllegalArgumentException("capacity must be >= 1 and refill-per-second > 0");
+            }
+        }
+    }
+
+    /**
+     * @param remaining        whole tokens left after this request
+     * @param retryAfterMillis when denied, how long until one token is available (0 when allowed)
+     */
+    public record Decision(boolean allowed, long limit, long remaining, long retryAfterMillis) { }
+
+    private record Bucket(double tokens, long updatedAt) { }
+
+    // Marks a bucket removed by the sweep; an acquirer that sees it looks the key up again.
+    private static final Bucket EVICTED = new Bucket(0, 0);
+    private static final int OVERFLOW_STRIPES = 64;
+    private static final double NANOS_PER_SECOND = 1_000_000_000d;
+
+    private final Limit defaultLimit;
+    private final Map<String, Limit> overrides;
+    private final int maxBuckets;
+    private final long sweepIntervalNanos;
+    private final LongSupplier nanoClock;
+    private final Scheduler sweeper;
+
+    private final ConcurrentMap<String, AtomicReference<Bucket>> buckets = new ConcurrentHashMap<>();
+    private final AtomicReferenceArray<Bucket> overflow = new AtomicReferenceArray<>(OVERFLOW_STRIPES);
+    private final AtomicLong nextSweepAt;
+    private final LongAdder evicted = new LongAdder();
+    private final LongAdder overflowed = new LongAdder();
+
+    public TokenBucketLimiter(Limit defaultLimit, Map<String, Limit> overrides,
+                              int maxBuckets, long sweepIntervalMillis) {
+        this(defaultLimit, overrides, maxBuckets, sweepIntervalMillis, System::nanoTime, Schedulers.parallel());
+    }
+
+    TokenBucketLimiter(Limit defaultLimit, Map<String, Limit> overrides, int maxBuckets,
+                       long sweepIntervalMillis, LongSupplier nanoClock, Scheduler sweeper) {
+        this.defaultLimit = defaultLimit;
+        this.overrides = Map.copyOf(overrides);
+        this.maxBuckets = maxBuckets;
+        this.sweepIntervalNanos = sweepIntervalMillis * 1_000_000L;
+        this.nanoClock = nanoClock;
+        this.sweeper = sweeper;
+        this.nextSweepAt = new AtomicLong(nanoClock.getAsLong() + sweepIntervalNanos);
+    }
+
+    public Decision tryAcquire(String key) {
+        Limit limit = limitFor(key);
+        long now = nanoClock.getAsLong();
+
+        while (true) {
+            AtomicReference<Bucket> ref = buckets.get(key);
+            if (ref == null) {
+                maybeSweep(now);
+                if (buckets.size() >= maxBuckets) {
+                    return acquireOverflow(key, limit, now);
+                }
+                // a new bucket starts full; this request takes its first token
+                Bucket first = new Bucket(limit.capacity() - 1, now);
+                if (buckets.putIfAbsent(key, new AtomicReference<>(first)) == null) {
+                    return allowed(limit, first);
+                }
+                continue;
+            }
+
+            Bucket current = ref.get();
+            if (current == EVICTED) {
+                buckets.remove(key, ref);
+                continue;
+            }
+            Bucket refilled = refill(current, limit, now);
+            if (refilled.tokens() < 1) {
+                return denied(limit, refilled);
+            }
+            Bucket next = new Bucket(refilled.tokens() - 1, refilled.updatedAt());
+            if (ref.compareAndSet(current, next)) {
+                return allowed(limit, next);
+            }
+        }
+    }
+
+    /**
+     * Gives back a token taken by {@link #tryAcquire} for a request that was rejected later on
+     * (e.g. by another limiter). Capped at the bucket capacity.
+     */
+    public void release(String key) {
+        AtomicReference<Bucket> ref = buckets.get(key);
+        if (ref == null) {
+            return;
+        }
+        Limit limit = limitFor(key);
+        Bucket current;
+        Bucket next;
+        do {
+            current = ref.get();
+            if (current == EVICTED) {
+                return;
+            }
+            next = new Bucket(Math.min(limit.capacity(), current.tokens() + 1), current.updatedAt());
+        } while (!ref.compareAndSet(current, next));
+    }
+
+    public Limit limitFor(String key) {
+        return overrides.getOrDefault(key, defaultLimit);
+    }
+
+    public int size() {
+        return buckets.size();
+    }
+
+    public long evictedCount() {
+        return evicted.sum();
+    }
+
+    public long overflowedCount() {
+        return overflowed.sum();
+    }
+
+    private Decision acquireOverflow(String key, Limit limit, long now) {
+        overflowed.increment();
+        int stripe = Math.floorMod(key.hashCode(), OVERFLOW_STRIPES);
+        while (true) {
+            Bucket current = overflow.get(stripe);
+            Bucket refilled = current == null ? new Bucket(limit.capacity(), now) : refill(current, limit, now);
+            if (refilled.tokens() < 1) {
+                return denied(limit, refilled);
+            }
+            Bucket next = new Bucket(refilled.tokens() - 1, refilled.updatedAt());
+            if (overflow.compareAndSet(stripe, current, next)) {
+                return allowed(limit, next);
+            }
+        }
+    }
+
+    private void maybeSweep(long now) {
+        // at most one sweep per interval, triggered by whichever new key arrives first after it is due;
+        // that request does not wait for it (it may still land in an overflow bucket)
+        long due = nextSweepAt.get();
+        if (now - due < 0 || !nextSweepAt.compareAndSet(due, now + sweepIntervalNanos)) {
+            return;
+        }
+        sweeper.schedule(this::sweep);
+    }
+
+    private void sweep() {
+        long now = nanoClock.getAsLong();
+        buckets.forEach((key, ref) -> {
+            Bucket current = ref.get();
+            if (current != EVICTED
+                    && refill(current, limitFor(key), now).tokens() >= limitFor(key).capacity()
+                    && ref.compareAndSet(current, EVICTED)) {
+                buckets.remove(key, ref);
+                evicted.increment();
+            }
+        });
+    }
+
+    private static Bucket refill(Bucket bucket, Limit limit, long now) {
+        long elapsed = now - bucket.updatedAt();
+        if (elapsed <= 0) {
+            return bucket;
+        }
+        double tokens = Math.min(limit.capacity(), bucket.tokens() + elapsed * limit.refillPerSecond() / NANOS_PER_SECOND);
+        return new Bucket(tokens, now);
+    }
+
+    private static Decision allowed(Limit limit, Bucket bucket) {
+        return new Decision(true, limit.capacity(), (long) bucket.tokens(), 0);
+    }
+
+    private static Decision denied(Limit limit, Bucket bucket) {
+        long retryAfterMillis = (long) Math.ceil((1 - bucket.tokens()) * 1000 / limit.refillPerSecond());
+        return new Decision(false, limit.capacity(), 0, Math.max(1, retryAfterMillis));
+    }
+}
@@ -11,10 +11,27 @@ import java.util.Map;
 @Component
 public class MessageConverter {
 
+    private final MoreDetailsCompressor compressor;
+
+    public MessageConverter(MoreDetailsCompressor compressor) {
+        this.compressor = compressor;
+    }
+
     public MessageBoundary toBoundary(MessageEntity entity) {
         if (entity == null) {
             return null;
         }
+        // decompressed only here, i.e. when the details are part of the response
+        return toBoundary(entity, entity.getCompressedMoreDetails() != null
+                ? compressor.decompress(entity.getCompressedMoreDetails())
+                : entity.getMoreDetails());
+    }
+
+    /**
+     * Same as {@link #toBoundary(MessageEntity)} with details the caller already has in plain form
+     * (e.g. the input of a create), so stored details are not decompressed again.
+     */
+    public MessageBoundary toBoundary(MessageEntity entity, Map<String, Object> moreDetails) {
         MessageBoundary rv = new MessageBoundary();
         rv.setId(entity.getId());
         rv.setTarget(entity.getTarget());
@@ -27,7 +44,7 @@ public class MessageConverter {
             ));
         }
         rv.setUrgent(entity.isUrgent());
-        rv.setMoreDetails(entity.getMoreDetails());
+        rv.setMoreDetails(moreDetails);
         return rv;
     }
 
@@ -44,7 +61,15 @@ public class MessageConverter {
         e.setTitle(input.getTitle());
         e.setPublicationTimestamp(Date.from(publicationTimestamp));
         e.setUrgent(urgent);
-        e.setMoreDetails(moreDetails);
+        setMoreDetails(e, moreDetails);
         return e;
     }
+
+    // Returns true when the details were stored compressed.
+    public boolean setMoreDetails(MessageEntity e, Map<String, Object> moreDetails) {
+        byte[] compressed = compressor.compress(moreDetails);
+        e.setCompressedMoreDetails(compressed);
+        e.setMoreDetails(compressed == null ? moreDetails : null);
+        return compressed != null;
+    }
 }
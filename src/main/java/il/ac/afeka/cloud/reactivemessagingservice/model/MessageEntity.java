@@ -2,6 +2,7 @@ package il.ac.afeka.cloud.reactivemessagingservice.model;
 
 import org.springframework.data.annotation.Id;
 import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.TextScore;
 import java.util.Date;
 import java.util.Map;
 
@@ -17,6 +18,12 @@ public class MessageEntity {
     private Date publicationTimestamp;
     private boolean urgent;
     private Map<String, Object> moreDetails;
+    // Deflate-compressed BSON of moreDetails when it is large (moreDetails is then null), see MoreDetailsCompressor
+    private byte[] compressedMoreDetails;
+
+    // read-only: filled by text searches sorted by relevance, never persisted
+    @TextScore
+    private Float score;
 
     public MessageEntity() { }
 
@@ -75,4 +82,20 @@ public class MessageEntity {
     public void setMoreDetails(Map<String, Object> moreDetails) {
         this.moreDetails = moreDetails;
     }
+
+    public byte[] getCompressedMoreDetails() {
+        return compressedMoreDetails;
+    }
+
+    public void setCompressedMoreDetails(byte[] compressedMoreDetails) {
+        this.compressedMoreDetails = compressedMoreDetails;
+    }
+
+    public Float getScore() {
+        return score;
+    }
+
+    public void setScore(Float score) {
+        this.score = score;
+    }
 }
@@ -0,0 +1,204 @@
+package il.ac.afeka.cloud.reactivemessagingservice.model;
+
+import com.mongodb.MongoClientSettings;
+import org.bson.BsonBinaryReader;
+import org.bson.BsonBinaryWriter;
+import org.bson.Document;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.DocumentCodec;
+import org.bson.codecs.EncoderContext;
+import org.bson.io.BasicOutputBuffer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.convert.MongoConverter;
+import org.springframework.stereotype.Component;
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Stores large {@code moreDetails} maps as Deflate-compressed BSON.
+ * <p>
+ * Maps whose BSON encoding is at least {@code threshold-bytes} long are compressed; the result is
+ * only used if it is actually smaller. Smaller maps stay a regular nested document so they remain
+ * queryable and readable in the Mongo shell.
+ * <p>
+ * The map goes through the application's {@link MongoConverter} (with its custom conversions)
+ * before it is encoded, exactly as the nested document would, so values such as dates come back
+ * the same either way. BigInteger and BigDecimal values (Jackson reads huge numbers as those) are
+ * stored as their exact decimal string: the driver has no BigInteger codec and Decimal128 cannot
+ * hold every BigDecimal. That is done here rather than through an application-wide
+ * BigDecimal representation, so the mapping of every other field is left alone.
+ */
+@Component
+public class MoreDetailsCompressor {
+
+    public record Stats(
+            long compressedCount,
+            long uncompressedBytes,
+            long compressedBytes,
+            double ratio,
+            long skippedCount,
+            long decompressedCount) { }
+
+    private static final DocumentCodec CODEC = new DocumentCodec(MongoClientSettings.getDefaultCodecRegistry());
+
+    private final MongoConverter converter;
+    private final boolean enabled;
+    private final int thresholdBytes;
+
+    private final LongAdder compressedCount = new LongAdder();
+    private final LongAdder uncompressedBytes = new LongAdder();
+    private final LongAdder compressedBytes = new LongAdder();
+    private final LongAdder skippedCount = new LongAdder();
+    private final LongAdder decompressedCount = new LongAdder();
+
+    public MoreDetailsCompressor(
+            MongoConverter converter,
+            @Value("${messaging.details-compression.enabled:true}") boolean enabled,
+            @Value("${messaging.details-compression.threshold-bytes:1024}") int thresholdBytes) {
+        this.converter = converter;
+        this.enabled = enabled;
+        this.thresholdBytes = thresholdBytes;
+    }
+
+    /**
+     * @return the compressed form, or null when the map should be stored as-is
+     */
+    public byte[] compress(Map<String, Object> details) {
+        if (!enabled || details == null || details.isEmpty()) {
+            return null;
+        }
+
+        BasicOutputBuffer buffer = new BasicOutputBuffer();
+        CODEC.encode(new BsonBinaryWriter(buffer), toDocument(details), EncoderContext.builder().build());
+        if (buffer.getSize() < thresholdBytes) {
+            return null;
+        }
+
+        byte[] bson = buffer.toByteArray();
+        byte[] deflated = deflate(bson);
+        if (deflated.length >= bson.length) {
+            skippedCount.increment();
+            return null;
+        }
+
+        compressedCount.increment();
+        uncompressedBytes.add(bson.length);
+        compressedBytes.add(deflated.length);
+        return deflated;
+    }
+
+    @SuppressWarnings("unchecked")
+    public Map<String, Object> decompress(byte[] compressed) {
+        decompressedCount.increment();
+        byte[] bson = inflate(compressed);
+        Document decoded = CODEC.decode(new BsonBinaryReader(ByteBuffer.wrap(bson)), DecoderContext.builder().build());
+        return toPlainMap(converter.read(Map.class, decoded));
+    }
+
+    public Stats stats() {
+        long raw = uncompressedBytes.sum();
+        long packed = compressedBytes.sum();
+        return new Stats(
+                compressedCount.sum(),
+                raw,
+                packed,
+                raw == 0 ? 0 : (double) packed / raw,
+                skippedCount.sum(),
+                decompressedCount.sum());
+    }
+
+    private Document toDocument(Map<String, Object> details) {
+        Object converted = converter.convertToMongoType(bigNumbersAsStrings(details));
+        if (converted instanceof Document document) {
+            return document;
+        }
+        throw new IllegalStateException("moreDetails did not convert to a document: " + converted);
+    }
+
+    private static Object bigNumbersAsStrings(Object value) {
+        if (value instanceof BigDecimal decimal) {
+            return decimal.toString();
+        }
+        if (value instanceof BigInteger integer) {
+            return integer.toString();
+        }
+        if (value instanceof Map<?, ?> map) {
+            Map<Object, Object> rv = new LinkedHashMap<>();
+            map.forEach((key, item) -> rv.put(key, bigNumbersAsStrings(item)));
+            return rv;
+        }
+        if (value instanceof List<?> list) {
+            List<Object> rv = new ArrayList<>(list.size());
+            list.forEach(item -> rv.add(bigNumbersAsStrings(item)));
+            return rv;
+        }
+        return value;
+    }
+
+    // Nested documents come back as org.bson.Document; hand out the same plain maps/lists as an uncompressed read.
+    private static Map<String, Object> toPlainMap(Map<String, Object> document) {
+        Map<String, Object> rv = new LinkedHashMap<>();
+        document.forEach((key, value) -> rv.put(key, toPlain(value)));
+        return rv;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Object toPlain(Object value) {
+        if (value instanceof Map<?, ?> map) {
+            return toPlainMap((Map<String, Object>) map);
+        }
+        if (value instanceof List<?> list) {
+            List<Object> rv = new ArrayList<>(list.size());
+            list.forEach(item -> rv.add(toPlain(item)));
+            return rv;
+        }
+        return value;
+    }
+
+    private static byte[] deflate(byte[] input) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(input);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(input.length / 2);
+            byte[] chunk = new byte[4096];
+            while (!deflater.finished()) {
+                out.write(chunk, 0, deflater.deflate(chunk));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] input) {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(input);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(input.length * 4);
+            byte[] chunk = new byte[4096];
+            while (!inflater.finished()) {
+                int n = inflater.inflate(chunk);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IllegalStateException("Truncated compressed moreDetails");
+                }
+                out.write(chunk, 0, n);
+            }
+            return out.toByteArray();
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Corrupt compressed moreDetails", e);
+        } finally {
+            inflater.end();
+        }
+    }
+}
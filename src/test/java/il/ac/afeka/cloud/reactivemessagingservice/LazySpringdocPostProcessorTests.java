@@ -0,0 +1,55 @@
+package il.ac.afeka.cloud.reactivemessagingservice;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.webtestclient.autoconfigure.AutoConfigureWebTestClient;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * {@code messaging.startup.lazy-springdoc=true} against the in-memory store (no MongoDB needed):
+ * the application starts without building springdoc's OpenAPI model, and the first /v3/api-docs
+ * request builds it and is answered.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "messaging.startup.lazy-springdoc=true")
+@AutoConfigureWebTestClient
+@ActiveProfiles("inmemory")
+class LazySpringdocPostProcessorTests {
+
+    // the beans that build the document; configurers and listeners are created by the framework regardless
+    private static final List<String> OPENAPI_MODEL = List.of(
+            "openApiResource", "openAPIBuilder", "operationBuilder", "requestBuilder", "responseBuilder",
+            "modelConverterRegistrar", "springDocProviders");
+
+    @Autowired
+    private ConfigurableListableBeanFactory beanFactory;
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Test
+    void springdocBeans_areCreatedOnFirstApiDocsRequest() {
+        List<String> springdoc = Arrays.stream(beanFactory.getBeanDefinitionNames())
+                .filter(name -> LazySpringdocPostProcessor.isSpringdoc(beanFactory.getBeanDefinition(name)))
+                .toList();
+        assertThat(springdoc).containsAll(OPENAPI_MODEL);
+        assertThat(springdoc).allMatch(name -> beanFactory.getBeanDefinition(name).isLazyInit());
+        assertThat(OPENAPI_MODEL).noneMatch(beanFactory::containsSingleton);
+
+        webTestClient.get().uri("/v3/api-docs").accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.openapi").exists();
+
+        assertThat(beanFactory.containsSingleton("openApiResource")).isTrue();
+        assertThat(beanFactory.containsSingleton("openAPIBuilder")).isTrue();
+    }
+}
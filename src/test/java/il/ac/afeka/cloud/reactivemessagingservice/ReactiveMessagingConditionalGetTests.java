@@ -0,0 +1,75 @@
+package il.ac.afeka.cloud.reactivemessagingservice;
+
+import il.ac.afeka.cloud.reactivemessagingservice.model.MessageBoundary;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.webtestclient.autoconfigure.AutoConfigureWebTestClient;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Conditional GET with the shipped ETag settings against the in-memory store (no MongoDB needed):
+ * a poller keeps getting 304 for as long as nothing it can see changed, however slowly it polls.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@AutoConfigureWebTestClient
+@ActiveProfiles("inmemory")
+class ReactiveMessagingConditionalGetTests {
+
+    private static final ParameterizedTypeReference<ServerSentEvent<MessageBoundary>> SSE_MESSAGE = new ParameterizedTypeReference<>() {};
+    private static final String INBOX = "/messages?search=byRecipient&value=poller@example.com&page=0&size=10";
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Test
+    void slowPoller_withDefaultConfig_keepsGettingNotModified() throws InterruptedException {
+        post("poller@example.com");
+        String etag = webTestClient.get().uri(INBOX).accept(MediaType.ALL)
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(SSE_MESSAGE)
+                .getResponseHeaders().getETag();
+        assertThat(etag).isNotBlank();
+
+        // polls spread over more than any time window a tag could be tied to by default
+        for (int poll = 0; poll < 3; poll++) {
+            Thread.sleep(3_000);
+            webTestClient.get().uri(INBOX).accept(MediaType.ALL).ifNoneMatch(etag)
+                    .exchange()
+                    .expectStatus().isNotModified();
+        }
+
+        post("poller@example.com");
+        webTestClient.get().uri(INBOX).accept(MediaType.ALL).ifNoneMatch(etag)
+                .exchange()
+                .expectStatus().isOk();
+    }
+
+    private void post(String target) {
+        MessageBoundary message = new MessageBoundary();
+        message.setTarget(target);
+        message.setSender("sender@example.com");
+        message.setTitle("hello");
+        message.setUrgent(false);
+        message.setPublicationTimestamp(ZonedDateTime.now(ZoneOffset.UTC));
+        message.setMoreDetails(Map.of("key", "value"));
+
+        webTestClient.post()
+                .uri("/messages")
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.ALL)
+                .bodyValue(message)
+                .exchange()
+                .expectStatus().isOk();
+    }
+}
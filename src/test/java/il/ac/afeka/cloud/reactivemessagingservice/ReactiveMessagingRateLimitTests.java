@@ -0,0 +1,90 @@
+package il.ac.afeka.cloud.reactivemessagingservice;
+
+import il.ac.afeka.cloud.reactivemessagingservice.model.MessageBoundary;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.webtestclient.autoconfigure.AutoConfigureWebTestClient;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * HTTP behavior of the create() rate limit against the in-memory store (no MongoDB needed):
+ * admitted POSTs report the remaining quota, a throttled one answers 429 with the quota headers of
+ * the bucket that rejected it.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {
+                "messaging.rate-limit.sender.capacity=2",
+                "messaging.rate-limit.sender.refill-per-second=0.001",
+                "messaging.rate-limit.target.capacity=3",
+                "messaging.rate-limit.target.refill-per-second=0.001"
+        })
+@AutoConfigureWebTestClient
+@ActiveProfiles("inmemory")
+class ReactiveMessagingRateLimitTests {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Test
+    void create_overSenderQuota_returns429WithQuotaHeaders() {
+        // admitted messages report the tighter bucket (this sender's) as well
+        post("target@example.com", "burst@example.com").expectStatus().isOk()
+                .expectHeader().valueEquals("X-RateLimit-Limit", "2")
+                .expectHeader().valueEquals("X-RateLimit-Remaining", "1");
+        post("target@example.com", "burst@example.com").expectStatus().isOk()
+                .expectHeader().valueEquals("X-RateLimit-Remaining", "0");
+
+        post("target@example.com", "burst@example.com")
+                .expectStatus().isEqualTo(429)
+                .expectHeader().valueEquals("X-RateLimit-Limit", "2")
+                .expectHeader().valueEquals("X-RateLimit-Remaining", "0")
+                .expectHeader().value(HttpHeaders.RETRY_AFTER, retryAfter ->
+                        assertThat(Long.parseLong(retryAfter)).isPositive());
+
+        // other senders are not affected
+        post("other@example.com", "calm@example.com").expectStatus().isOk();
+    }
+
+    @Test
+    void create_overTargetQuota_returns429WithTargetQuota() {
+        post("popular@example.com", "a@example.com").expectStatus().isOk();
+        post("popular@example.com", "b@example.com").expectStatus().isOk();
+        post("popular@example.com", "c@example.com").expectStatus().isOk();
+
+        post("popular@example.com", "d@example.com")
+                .expectStatus().isEqualTo(429)
+                .expectHeader().valueEquals("X-RateLimit-Limit", "3")
+                .expectHeader().valueEquals("X-RateLimit-Remaining", "0")
+                .expectHeader().exists(HttpHeaders.RETRY_AFTER);
+
+        // the rejected message did not cost d its sender token
+        post("elsewhere@example.com", "d@example.com").expectStatus().isOk();
+        post("elsewhere@example.com", "d@example.com").expectStatus().isOk();
+    }
+
+    private WebTestClient.ResponseSpec post(String target, String sender) {
+        MessageBoundary message = new MessageBoundary();
+        message.setTarget(target);
+        message.setSender(sender);
+        message.setTitle("hello");
+        message.setUrgent(false);
+        message.setPublicationTimestamp(ZonedDateTime.now(ZoneOffset.UTC));
+        message.setMoreDetails(Map.of("key", "value"));
+
+        return webTestClient.post()
+                .uri("/messages")
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.ALL)
+                .bodyValue(message)
+                .exchange();
+    }
+}
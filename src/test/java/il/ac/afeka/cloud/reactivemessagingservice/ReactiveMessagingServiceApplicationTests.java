@@ -77,6 +77,21 @@ class ReactiveMessagingServiceApplicationTests {
                 .isEqualTo(request.getPublicationTimestamp().toLocalDate());
     }
 
+    @Test
+    void createMessage_largeMoreDetails_roundTrips() {
+        MessageBoundary request = newMessage("big@example.com", "producer@example.com", "big payload", false);
+        Map<String, Object> details = new HashMap<>();
+        details.put("blob", "x".repeat(10_000));
+        details.put("nested", Map.of("list", List.of(1, 2, 3), "flag", true));
+        request.setMoreDetails(details);
+
+        MessageBoundary created = postMessage(request);
+        List<MessageBoundary> found = getMessages("/messages?search=byId&value=" + created.getId());
+
+        assertThat(created.getMoreDetails()).isEqualTo(details);
+        assertThat(found.getFirst().getMoreDetails()).isEqualTo(details);
+    }
+
     @Test
     void search_byId_returnsSingleMessage() {
         MessageBoundary created = postMessage(newMessage(
@@ -176,6 +191,47 @@ class ReactiveMessagingServiceApplicationTests {
         assertThat(result).allMatch(m -> Boolean.TRUE.equals(m.getUrgent()));
     }
 
+    @Test
+    void search_byText_matchesTitleWords() {
+        postMessage(newMessage("reader@example.com", "s1@example.com", "Quarterly report ready", false));
+        postMessage(newMessage("reader@example.com", "s2@example.com", "Lunch on Friday?", false));
+        postMessage(newMessage("other@example.com", "s3@example.com", "Report draft", true));
+
+        List<MessageBoundary> all = getMessages("/messages?search=byText&value=quarterly report&page=0&size=10");
+        List<MessageBoundary> inbox = getMessages("/messages?search=byText&value=report&target=reader@example.com&order=timestamp&page=0&size=10");
+
+        assertThat(all).extracting(MessageBoundary::getTitle).containsExactly("Quarterly report ready", "Report draft");
+        assertThat(inbox).extracting(MessageBoundary::getTitle).containsExactly("Quarterly report ready");
+    }
+
+    @Test
+    void search_withCurrentETag_returnsNotModified() {
+        postMessage(newMessage("poller@example.com", "s1@example.com", "first", false));
+        String uri = "/messages?search=byRecipient&value=poller@example.com&page=0&size=10";
+
+        String etag = webTestClient.get().uri(uri).accept(MediaType.ALL)
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(SSE_MESSAGE)
+                .getResponseHeaders().getETag();
+        assertThat(etag).isNotBlank();
+
+        webTestClient.get().uri(uri).accept(MediaType.ALL).ifNoneMatch(etag)
+                .exchange()
+                .expectStatus().isNotModified();
+
+        // a message for someone else does not change this inbox
+        postMessage(newMessage("other@example.com", "s2@example.com", "unrelated", false));
+        webTestClient.get().uri(uri).accept(MediaType.ALL).ifNoneMatch(etag)
+                .exchange()
+                .expectStatus().isNotModified();
+
+        postMessage(newMessage("poller@example.com", "s3@example.com", "second", false));
+        webTestClient.get().uri(uri).accept(MediaType.ALL).ifNoneMatch(etag)
+                .exchange()
+                .expectStatus().isOk();
+    }
+
     @Test
     void deleteAll_removesAllMessages() {
         postMessage(newMessage("t1@example.com", "s1@example.com", "a", false));
@@ -260,6 +316,16 @@ class ReactiveMessagingServiceApplicationTests {
                 .expectStatus().isBadRequest();
     }
 
+    @Test
+    void search_byText_unknownOrder_returnsBadRequest() {
+        webTestClient
+                .get()
+                .uri("/messages?search=byText&value=hello&order=alphabetical")
+                .accept(MediaType.ALL)
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
     @Test
     void search_byId_notFound_returnsOk() {
         webTestClient
@@ -0,0 +1,337 @@
+package il.ac.afeka.cloud.reactivemessagingservice;
+
+import il.ac.afeka.cloud.reactivemessagingservice.model.MessageBoundary;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.blockhound.BlockHound;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.function.Tuple2;
+import reactor.util.function.Tuples;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Concurrency stress tests against the in-memory store (no MongoDB needed).
+ * <p>
+ * Many concurrent subscribers create, search and delete at the same time. The operations are
+ * fixed up front (seeded), so only the interleaving varies between runs; every check is an
+ * invariant that must hold for any interleaving:
+ * <ul>
+ *     <li>no created message is lost or returned twice,</li>
+ *     <li>every page is in the service default order (newest first, then id ascending),</li>
+ *     <li>pages fetched sequentially or concurrently add up to the same list.</li>
+ * </ul>
+ * BlockHound watches the Netty event-loop threads; any blocking call made on them fails the test.
+ * It stays installed for the rest of the JVM, so these run only in the {@code stressTest} task.
+ */
+@Tag("stress")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {
+                // several partitions so unscoped searches go through the k-way merge
+                "messaging.partitions.count=3",
+                // keep slow-query logging out of the picture under load
+                "messaging.slow-query.threshold-ms=60000",
+                // the load here is intentional; throttling is covered by TokenBucketLimiterTests
+                "messaging.rate-limit.enabled=false"
+        })
+@ActiveProfiles("inmemory")
+class ReactiveMessagingStressTests {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(60);
+    private static final ParameterizedTypeReference<ServerSentEvent<MessageBoundary>> SSE_MESSAGE = new ParameterizedTypeReference<>() {};
+
+    private static final int CONCURRENCY = 64;
+    private static final int TARGETS = 7;
+    private static final int SENDERS = 5;
+    private static final int PAGE_SIZE = 17;
+
+    // ReactiveMessagingServiceImpl.DEFAULT_SORT: publicationTimestamp desc, id asc
+    private static final Comparator<MessageBoundary> DEFAULT_ORDER =
+            Comparator.comparing((MessageBoundary m) -> m.getPublicationTimestamp().toInstant()).reversed()
+                    .thenComparing(MessageBoundary::getId);
+
+    private static final Queue<String> BLOCKING_CALLS = new ConcurrentLinkedQueue<>();
+
+    @LocalServerPort
+    private int port;
+
+    private WebClient client;
+
+    @BeforeAll
+    static void installBlockHound() {
+        BlockHound.install(builder -> builder
+                // event loops of the server and of the test WebClient
+                .nonBlockingThreadPredicate(current -> current.or(t -> t.getName().startsWith("reactor-http-")))
+                // NativePRNG reads /dev/urandom, which does not block
+                .allowBlockingCallsInside(UUID.class.getName(), "randomUUID")
+                // one-time lock while Jackson builds a deserializer on first use
+                .allowBlockingCallsInside("tools.jackson.databind.deser.DeserializerCache", "_createAndCacheValueDeserializer")
+                // record instead of throwing, so a violation swallowed by some error handler still fails the test
+                .blockingMethodCallback(method ->
+                        BLOCKING_CALLS.add(method + " on " + Thread.currentThread().getName())));
+    }
+
+    @BeforeEach
+    void setUp() {
+        client = WebClient.create("http://localhost:" + port);
+        deleteAll().block(TIMEOUT);
+        BLOCKING_CALLS.clear();
+    }
+
+    @AfterEach
+    void noBlockingCallsOnEventLoops() {
+        assertThat(BLOCKING_CALLS).as("blocking calls on event-loop threads").isEmpty();
+    }
+
+    // ------------------------------
+    // Tests
+    // ------------------------------
+
+    @Test
+    void concurrentCreates_everyMessageReturnedOnceInDefaultOrder() {
+        int messages = 600;
+
+        List<MessageBoundary> created = Flux.range(0, messages)
+                .flatMap(this::create, CONCURRENCY)
+                .collectList()
+                .block(TIMEOUT);
+
+        assertThat(created).hasSize(messages);
+        assertThat(ids(created)).doesNotHaveDuplicates();
+
+        List<MessageBoundary> all = pageAll("");
+        assertOrderedAndDistinct(all);
+        assertThat(ids(all)).containsExactlyInAnyOrderElementsOf(ids(created));
+        assertThat(pageAllConcurrently("", all.size())).extracting(MessageBoundary::getId)
+                .containsExactlyElementsOf(ids(all));
+
+        for (int t = 0; t < TARGETS; t++) {
+            String target = target(t);
+            List<MessageBoundary> byRecipient = pageAll("search=byRecipient&value=" + target);
+
+            assertOrderedAndDistinct(byRecipient);
+            assertThat(ids(byRecipient)).containsExactlyElementsOf(
+                    ids(all.stream().filter(m -> target.equals(m.getTarget())).toList()));
+        }
+    }
+
+    @Test
+    void searchesDuringConcurrentCreates_everyPageIsOrderedAndMatchesItsFilter() {
+        int messages = 400;
+        Random random = new Random(2025);
+
+        List<Read> reads = new ArrayList<>();
+        for (int i = 0; i < 400; i++) {
+            reads.add(Read.random(random));
+        }
+
+        Flux<MessageBoundary> writes = Flux.range(0, messages).flatMap(this::create, CONCURRENCY / 2);
+        Flux<Tuple2<Read, List<MessageBoundary>>> searches = Flux.fromIterable(reads)
+                .flatMap(read -> page(read.query(), read.page()).map(page -> Tuples.of(read, page)),
+                        CONCURRENCY / 2);
+
+        List<MessageBoundary> created = new ArrayList<>();
+        List<Tuple2<Read, List<MessageBoundary>>> pages = new ArrayList<>();
+        Mono.when(writes.collectList().doOnNext(created::addAll),
+                        searches.collectList().doOnNext(pages::addAll))
+                .block(TIMEOUT);
+
+        assertThat(pages).hasSize(reads.size());
+        Set<String> createdIds = Set.copyOf(ids(created));
+        for (Tuple2<Read, List<MessageBoundary>> result : pages) {
+            Read read = result.getT1();
+            List<MessageBoundary> page = result.getT2();
+
+            assertThat(page).as(read.query()).hasSizeLessThanOrEqualTo(PAGE_SIZE).allMatch(read.filter());
+            assertOrderedAndDistinct(page);
+            assertThat(ids(page)).as(read.query()).allMatch(createdIds::contains);
+        }
+
+        // once the writers are done every message is visible exactly once
+        List<MessageBoundary> all = pageAll("");
+        assertOrderedAndDistinct(all);
+        assertThat(ids(all)).containsExactlyInAnyOrderElementsOf(createdIds);
+    }
+
+    @Test
+    void deleteAllRacingCreates_leavesConsistentViews() {
+        AtomicLong clock = new AtomicLong();
+        AtomicLong lastDeleteDone = new AtomicLong(-1);
+        Map<String, Long> createStartedAt = new ConcurrentHashMap<>();
+
+        // a deleteAll every 100 operations, interleaved with the creates
+        List<MessageBoundary> created = Flux.range(0, 500)
+                .flatMap(i -> {
+                    if (i % 100 == 50) {
+                        return deleteAll()
+                                .doOnSuccess(v -> lastDeleteDone.accumulateAndGet(clock.incrementAndGet(), Math::max))
+                                .then(Mono.<MessageBoundary>empty());
+                    }
+                    return Mono.defer(() -> {
+                        long startedAt = clock.incrementAndGet();
+                        return create(i).doOnNext(m -> createStartedAt.put(m.getId(), startedAt));
+                    });
+                }, CONCURRENCY)
+                .collectList()
+                .block(TIMEOUT);
+
+        List<MessageBoundary> all = pageAll("");
+        assertOrderedAndDistinct(all);
+        assertThat(ids(all)).allMatch(Set.copyOf(ids(created))::contains);
+        // anything created after the last deleteAll completed must have survived
+        assertThat(ids(all)).containsAll(createStartedAt.entrySet().stream()
+                .filter(e -> e.getValue() > lastDeleteDone.get())
+                .map(Map.Entry::getKey)
+                .toList());
+        assertThat(pageAllConcurrently("", all.size())).extracting(MessageBoundary::getId)
+                .containsExactlyElementsOf(ids(all));
+
+        // per-recipient views and byId agree with the unscoped view
+        for (int t = 0; t < TARGETS; t++) {
+            String target = target(t);
+            assertThat(ids(pageAll("search=byRecipient&value=" + target))).containsExactlyElementsOf(
+                    ids(all.stream().filter(m -> target.equals(m.getTarget())).toList()));
+        }
+        List<String> byId = Flux.fromIterable(all)
+                .flatMap(m -> get("search=byId&value=" + m.getId()), CONCURRENCY)
+                .map(MessageBoundary::getId)
+                .collectList()
+                .block(TIMEOUT);
+        assertThat(byId).containsExactlyInAnyOrderElementsOf(ids(all));
+
+        deleteAll().block(TIMEOUT);
+        assertThat(pageAll("")).isEmpty();
+        for (int t = 0; t < TARGETS; t++) {
+            assertThat(pageAll("search=byRecipient&value=" + target(t))).isEmpty();
+        }
+    }
+
+    // ------------------------------
+    // Helpers
+    // ------------------------------
+
+    private record Read(String query, int page, Predicate<MessageBoundary> filter) {
+
+        static Read random(Random random) {
+            int page = random.nextInt(3);
+            return switch (random.nextInt(4)) {
+                case 0 -> new Read("", page, m -> true);
+                case 1 -> {
+                    String target = target(random.nextInt(TARGETS));
+                    yield new Read("search=byRecipient&value=" + target, page, m -> target.equals(m.getTarget()));
+                }
+                case 2 -> {
+                    String sender = sender(random.nextInt(SENDERS));
+                    yield new Read("search=bySender&value=" + sender, page, m -> sender.equals(m.getSender()));
+                }
+                default -> new Read("search=byUrgent", page, m -> Boolean.TRUE.equals(m.getUrgent()));
+            };
+        }
+    }
+
+    private Mono<MessageBoundary> create(int i) {
+        MessageBoundary boundary = new MessageBoundary();
+        boundary.setTarget(target(i % TARGETS));
+        boundary.setSender(sender(i % SENDERS));
+        boundary.setTitle("stress message " + i);
+        boundary.setUrgent(i % 3 == 0);
+        boundary.setMoreDetails(Map.of("seq", i));
+
+        return client.post()
+                .uri("/messages")
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.ALL)
+                .bodyValue(boundary)
+                .retrieve()
+                .bodyToFlux(SSE_MESSAGE)
+                .map(ServerSentEvent::data)
+                .filter(Objects::nonNull)
+                .next();
+    }
+
+    private Mono<Void> deleteAll() {
+        return client.delete()
+                .uri("/messages")
+                .accept(MediaType.ALL)
+                .retrieve()
+                .toBodilessEntity()
+                .then();
+    }
+
+    private Flux<MessageBoundary> get(String query) {
+        return client.get()
+                .uri(b -> b.path("/messages").query(query).build())
+                .accept(MediaType.ALL)
+                .retrieve()
+                .bodyToFlux(SSE_MESSAGE)
+                .map(ServerSentEvent::data)
+                .filter(Objects::nonNull);
+    }
+
+    private Mono<List<MessageBoundary>> page(String query, int page) {
+        String paging = "page=" + page + "&size=" + PAGE_SIZE;
+        return get(query.isEmpty() ? paging : query + "&" + paging).collectList();
+    }
+
+    /** Walks the pages one after the other until a short page. */
+    private List<MessageBoundary> pageAll(String query) {
+        return Flux.range(0, Integer.MAX_VALUE)
+                .concatMap(p -> page(query, p))
+                .takeUntil(page -> page.size() < PAGE_SIZE)
+                .flatMapIterable(page -> page)
+                .collectList()
+                .block(TIMEOUT);
+    }
+
+    /** Fetches all pages of a known total at once and stitches them in page order. */
+    private List<MessageBoundary> pageAllConcurrently(String query, int total) {
+        return Flux.range(0, total / PAGE_SIZE + 1)
+                .flatMapSequential(p -> page(query, p), CONCURRENCY)
+                .flatMapIterable(page -> page)
+                .collectList()
+                .block(TIMEOUT);
+    }
+
+    private static void assertOrderedAndDistinct(List<MessageBoundary> messages) {
+        assertThat(messages).isSortedAccordingTo(DEFAULT_ORDER);
+        assertThat(ids(messages)).doesNotHaveDuplicates();
+    }
+
+    private static List<String> ids(List<MessageBoundary> messages) {
+        return messages.stream().map(MessageBoundary::getId).collect(Collectors.toList());
+    }
+
+    private static String target(int i) {
+        return "user" + i + "@example.com";
+    }
+
+    private static String sender(int i) {
+        return "sender" + i + "@example.com";
+    }
+}
@@ -0,0 +1,82 @@
+package il.ac.afeka.cloud.reactivemessagingservice.dal;
+
+import il.ac.afeka.cloud.reactivemessagingservice.model.MessageEntity;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+import reactor.core.publisher.Flux;
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InMemoryMessageTextIndexTests {
+
+    private static final Instant NOW = Instant.parse("2025-12-18T13:00:00Z");
+
+    private InMemoryMessageTextIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new InMemoryMessageTextIndex();
+        Flux.just(
+                entity("m1", "a@example.com", "Quarterly report ready", 1),
+                entity("m2", "a@example.com", "Report draft", 2),
+                entity("m3", "b@example.com", "Report: quarterly report numbers", 3),
+                entity("m4", "a@example.com", "Lunch on Friday?", 4)
+        ).concatMap(index::index).blockLast();
+    }
+
+    @Test
+    void search_byRelevance_ordersByMatchedTermsThenNewest() {
+        List<String> ids = searchIds("quarterly report", null, TextSearchOrder.RELEVANCE, 0, 10);
+
+        // m3 matches "report" twice and "quarterly" once
+        assertThat(ids).containsExactly("m3", "m1", "m2");
+    }
+
+    @Test
+    void search_byTimestamp_ordersNewestFirst() {
+        List<String> ids = searchIds("REPORT", null, TextSearchOrder.TIMESTAMP, 0, 10);
+
+        assertThat(ids).containsExactly("m3", "m2", "m1");
+    }
+
+    @Test
+    void search_withTarget_onlySearchesThatInbox() {
+        List<String> ids = searchIds("quarterly report", "a@example.com", TextSearchOrder.RELEVANCE, 0, 10);
+
+        assertThat(ids).containsExactly("m1", "m2");
+    }
+
+    @Test
+    void search_withPaging_returnsRequestedSlice() {
+        assertThat(searchIds("report", null, TextSearchOrder.TIMESTAMP, 0, 2)).containsExactly("m3", "m2");
+        assertThat(searchIds("report", null, TextSearchOrder.TIMESTAMP, 1, 2)).containsExactly("m1");
+    }
+
+    @Test
+    void clear_removesEverything() {
+        index.clear().block();
+
+        assertThat(searchIds("report", null, TextSearchOrder.RELEVANCE, 0, 10)).isEmpty();
+    }
+
+    private List<String> searchIds(String text, String target, TextSearchOrder order, int page, int size) {
+        return index.search(text, target, order, PageRequest.of(page, size))
+                .map(MessageEntity::getId)
+                .collectList()
+                .block();
+    }
+
+    private static MessageEntity entity(String id, String target, String title, int minutesAfter) {
+        MessageEntity e = new MessageEntity();
+        e.setId(id);
+        e.setTarget(target);
+        e.setSender("sender@example.com");
+        e.setTitle(title);
+        e.setPublicationTimestamp(Date.from(NOW.plusSeconds(60L * minutesAfter)));
+        return e;
+    }
+}
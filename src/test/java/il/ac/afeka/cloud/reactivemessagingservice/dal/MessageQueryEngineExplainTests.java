@@ -0,0 +1,83 @@
+package il.ac.afeka.cloud.reactivemessagingservice.dal;
+
+import com.mongodb.reactivestreams.client.MongoClient;
+import com.mongodb.reactivestreams.client.MongoClients;
+import il.ac.afeka.cloud.reactivemessagingservice.model.MessageEntity;
+import org.bson.Document;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.index.CompoundIndexDefinition;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import java.time.Duration;
+import java.util.Date;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// explain() is a hand-built command, so it is checked against a real server.
+@Testcontainers
+class MessageQueryEngineExplainTests {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+    private static final Sort SORT = Sort.by(Sort.Order.desc("publicationTimestamp"), Sort.Order.asc("id"));
+
+    @Container
+    static final MongoDBContainer mongo = new MongoDBContainer("mongo:latest");
+
+    private static MongoClient client;
+    private static MessageQueryEngine engine;
+
+    @BeforeAll
+    static void setUp() {
+        client = MongoClients.create(mongo.getReplicaSetUrl());
+        ReactiveMongoTemplate template = new ReactiveMongoTemplate(client, "explain");
+        engine = new MessageQueryEngine("p0", template, new SlowQueryDetector(200, 0, 0, 60_000));
+
+        template.indexOps(MessageEntity.class)
+                .createIndex(new CompoundIndexDefinition(new Document("title", "text")))
+                .block(TIMEOUT);
+        MessageEntity entity = new MessageEntity();
+        entity.setId("m-1");
+        entity.setTarget("a@example.com");
+        entity.setSender("s@example.com");
+        entity.setTitle("Quarterly report");
+        entity.setPublicationTimestamp(new Date());
+        template.save(entity).block(TIMEOUT);
+    }
+
+    @AfterAll
+    static void tearDown() {
+        client.close();
+    }
+
+    @Test
+    void explain_withoutText_returnsPlanAndStats() {
+        Document explain = engine.explain(MessageQuery.builder()
+                        .target("a@example.com")
+                        .page(PageRequest.of(0, 10, SORT))
+                        .build())
+                .block(TIMEOUT);
+
+        SlowQuerySample.ExplainSummary summary = SlowQueryDetector.summarize(explain);
+        assertThat(summary.plan()).isNotBlank();
+        assertThat(summary.returned()).isEqualTo(1);
+    }
+
+    @Test
+    void explain_textByRelevance_returnsPlanAndStats() {
+        Document explain = engine.explain(MessageQuery.builder()
+                        .text("report", TextSearchOrder.RELEVANCE)
+                        .page(PageRequest.of(0, 10, SORT))
+                        .build())
+                .block(TIMEOUT);
+
+        SlowQuerySample.ExplainSummary summary = SlowQueryDetector.summarize(explain);
+        assertThat(summary.plan()).contains("TEXT");
+        assertThat(summary.returned()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,116 @@
+package il.ac.afeka.cloud.reactivemessagingservice.dal;
+
+import com.mongodb.reactivestreams.client.MongoClient;
+import com.mongodb.reactivestreams.client.MongoClients;
+import il.ac.afeka.cloud.reactivemessagingservice.model.MessageEntity;
+import org.bson.Document;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.data.mongodb.core.query.Query;
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Builds queries only; nothing here talks to a MongoDB server.
+class MessageQueryEngineTests {
+
+    private static final Sort SORT = Sort.by(Sort.Order.desc("publicationTimestamp"), Sort.Order.asc("id"));
+
+    private static MongoClient client;
+    private static ReactiveMongoTemplate template;
+    private static MessageQueryEngine engine;
+
+    @BeforeAll
+    static void setUp() {
+        client = MongoClients.create("mongodb://localhost:1");
+        template = new ReactiveMongoTemplate(client, "test");
+        engine = new MessageQueryEngine("p0", template, new SlowQueryDetector(200, 0, 0, 60_000));
+    }
+
+    @AfterAll
+    static void tearDown() {
+        client.close();
+    }
+
+    @Test
+    void toQuery_combinesFiltersIntoSingleCriteria() {
+        Query query = engine.toQuery(MessageQuery.builder()
+                .target("a@example.com")
+                .urgentOnly()
+                .page(PageRequest.of(2, 10, SORT))
+                .build());
+
+        assertThat(query.getQueryObject()).isEqualTo(new Document("$and", List.of(
+                new Document("target", "a@example.com"),
+                new Document("urgent", true))));
+        assertThat(query.getSortObject()).isEqualTo(new Document("publicationTimestamp", -1).append("id", 1));
+        assertThat(query.getSkip()).isEqualTo(20);
+        assertThat(query.getLimit()).isEqualTo(10);
+    }
+
+    @Test
+    void toQuery_withoutFilters_matchesEverything() {
+        Query query = engine.toQuery(MessageQuery.builder().page(PageRequest.of(0, 5, SORT)).build());
+
+        assertThat(query.getQueryObject()).isEmpty();
+    }
+
+    @Test
+    void toQuery_sameShape_bindsNewValues() {
+        Query first = engine.toQuery(MessageQuery.builder().sender("x@example.com").build());
+        Query second = engine.toQuery(MessageQuery.builder().sender("y@example.com").build());
+
+        assertThat(first.getQueryObject().toJson()).contains("x@example.com");
+        assertThat(second.getQueryObject().toJson()).contains("y@example.com").doesNotContain("x@example.com");
+    }
+
+    @Test
+    void toQuery_timeRangeAndCursor() {
+        Instant from = Instant.parse("2025-01-01T00:00:00Z");
+        Instant cursor = Instant.parse("2025-01-02T00:00:00Z");
+
+        Query query = engine.toQuery(MessageQuery.builder()
+                .from(from)
+                .after(new MessageQuery.Cursor(cursor, "m-7"))
+                .build());
+
+        assertThat(query.getQueryObject()).isEqualTo(new Document("$and", List.of(
+                new Document("publicationTimestamp", new Document("$gte", Date.from(from))),
+                new Document("$or", List.of(
+                        new Document("publicationTimestamp", new Document("$lt", Date.from(cursor))),
+                        new Document("publicationTimestamp", Date.from(cursor)).append("id", new Document("$gt", "m-7")))))));
+    }
+
+    @Test
+    void toQuery_projectionAndRelevance() {
+        Query query = engine.toQuery(MessageQuery.builder()
+                .text("report", TextSearchOrder.RELEVANCE)
+                .include("title", "target")
+                .page(PageRequest.of(0, 10, SORT))
+                .build());
+
+        assertThat(query.getQueryObject()).containsKey("$text");
+        assertThat(query.getFieldsObject()).containsEntry("title", 1).containsEntry("target", 1);
+        assertThat(query.getSortObject().keySet()).containsExactly("score", "publicationTimestamp", "id");
+    }
+
+    @Test
+    void explainFields_projectTextScoreOnlyForTextQueries() {
+        MongoPersistentEntity<?> entity = template.getConverter().getMappingContext()
+                .getRequiredPersistentEntity(MessageEntity.class);
+
+        Query plain = engine.toQuery(MessageQuery.builder().target("a@example.com").build());
+        Query text = engine.toQuery(MessageQuery.builder().text("report", TextSearchOrder.RELEVANCE).build());
+
+        assertThat(engine.explainFields(plain, entity)).doesNotContainKey("score");
+        assertThat(engine.explainFields(text, entity))
+                .containsEntry("score", new Document("$meta", "textScore"));
+    }
+}
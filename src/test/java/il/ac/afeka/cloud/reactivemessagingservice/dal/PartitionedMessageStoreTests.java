@@ -0,0 +1,174 @@
+package il.ac.afeka.cloud.reactivemessagingservice.dal;
+
+import il.ac.afeka.cloud.reactivemessagingservice.model.MessageEntity;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+class PartitionedMessageStoreTests {
+
+    private static final Sort SORT = Sort.by(Sort.Order.desc("publicationTimestamp"), Sort.Order.asc("id"));
+    private static final Instant NOW = Instant.parse("2025-12-18T13:00:00Z");
+    private static final int MESSAGES = 47;
+
+    private List<MessagePartition> partitions;
+    private PartitionedMessageStore store;
+    // same data in one partition: what a non-partitioned deployment would return
+    private PartitionedMessageStore reference;
+
+    @BeforeEach
+    void setUp() {
+        partitions = List.of(
+                new InMemoryMessagePartition("p0"),
+                new InMemoryMessagePartition("p1"),
+                new InMemoryMessagePartition("p2"));
+        store = new PartitionedMessageStore(partitions);
+        reference = new PartitionedMessageStore(List.of(new InMemoryMessagePartition("all")));
+
+        // several messages share a timestamp so the id tie-break matters
+        Flux.range(0, MESSAGES)
+                .map(i -> entity("m" + i, "user" + (i % 7) + "@example.com", i % 3 == 0, i / 2))
+                .concatMap(e -> store.save(e).then(reference.save(e)))
+                .blockLast();
+    }
+
+    @Test
+    void save_routesByTargetHash() {
+        for (int user = 0; user < 7; user++) {
+            String target = "user" + user + "@example.com";
+            MessagePartition owner = store.partitionFor(target);
+
+            for (MessagePartition p : partitions) {
+                List<MessageEntity> found = p.find(MessageQuery.builder().target(target).build()).collectList().block();
+                if (p == owner) {
+                    assertThat(found).isNotEmpty();
+                } else {
+                    assertThat(found).isEmpty();
+                }
+            }
+        }
+    }
+
+    @Test
+    void find_fanOut_pagesMatchSinglePartition() {
+        for (int size : new int[]{1, 5, 10, 50}) {
+            for (int page = 0; page * size <= MESSAGES; page++) {
+                MessageQuery query = MessageQuery.builder().page(PageRequest.of(page, size, SORT)).build();
+
+                assertThat(ids(store, query)).as("page %d size %d", page, size).isEqualTo(ids(reference, query));
+            }
+        }
+    }
+
+    @Test
+    void find_fanOutWithFilter_pagesMatchSinglePartition() {
+        for (int page = 0; page < 4; page++) {
+            MessageQuery query = MessageQuery.builder().urgentOnly().page(PageRequest.of(page, 4, SORT)).build();
+
+            assertThat(ids(store, query)).isEqualTo(ids(reference, query));
+        }
+    }
+
+    @Test
+    void find_pagesAreDisjointAndComplete() {
+        List<String> all = IntStream.range(0, 5)
+                .mapToObj(page -> ids(store, MessageQuery.builder().page(PageRequest.of(page, 10, SORT)).build()))
+                .flatMap(List::stream)
+                .toList();
+
+        assertThat(all).hasSize(MESSAGES).doesNotHaveDuplicates();
+    }
+
+    @Test
+    void find_recipientScoped_matchesSinglePartition() {
+        MessageQuery query = MessageQuery.builder().target("user3@example.com").page(PageRequest.of(0, 100, SORT)).build();
+
+        assertThat(ids(store, query)).isNotEmpty().isEqualTo(ids(reference, query));
+    }
+
+    @Test
+    void find_textFanOut_pagesMatchSinglePartition() {
+        // every title contains "title"; m3 and m5 also match their id, so they score higher
+        for (TextSearchOrder order : TextSearchOrder.values()) {
+            for (int page = 0; page < 4; page++) {
+                MessageQuery query = MessageQuery.builder()
+                        .text("Title m3 m5 nothing", order)
+                        .page(PageRequest.of(page, 15, SORT))
+                        .build();
+
+                assertThat(ids(store, query)).as("%s page %d", order, page).isEqualTo(ids(reference, query));
+            }
+        }
+
+        MessageQuery byRelevance = MessageQuery.builder()
+                .text("m3 title m5", TextSearchOrder.RELEVANCE)
+                .page(PageRequest.of(0, 3, SORT))
+                .build();
+        assertThat(store.find(byRelevance).collectList().block())
+                .extracting(MessageEntity::getId, MessageEntity::getScore)
+                .containsExactly(tuple("m5", 2f), tuple("m3", 2f), tuple("m46", 1f));
+        assertThat(ids(store, MessageQuery.builder().text("nothing", TextSearchOrder.RELEVANCE).build())).isEmpty();
+    }
+
+    @Test
+    void findById_searchesAllPartitions() {
+        assertThat(store.findById("m13").map(MessageEntity::getId).block()).isEqualTo("m13");
+        assertThat(store.findById("missing").block()).isNull();
+    }
+
+    @Test
+    void deleteAll_clearsEveryPartition() {
+        store.deleteAll().block();
+
+        assertThat(store.find(MessageQuery.builder().build()).collectList().block()).isEmpty();
+    }
+
+    @Test
+    void find_fanOut_recordsPartitionsCancelledByTheMerge() {
+        SlowQueryDetector detector = new SlowQueryDetector(0, 1.0, 10, 60_000);
+        List<MessagePartition> tracked = partitions.stream()
+                .<MessagePartition>map(p -> new InMemoryMessagePartition(p.name()) {
+                    @Override
+                    public Flux<MessageEntity> find(MessageQuery query) {
+                        // each row takes a while, so the page fills up before any partition completes
+                        return detector.track(name(), query,
+                                p.find(query).delayElements(Duration.ofMillis(5)), q -> Mono.empty());
+                    }
+                })
+                .toList();
+
+        new PartitionedMessageStore(tracked)
+                .find(MessageQuery.builder().page(PageRequest.of(0, 3, SORT)).build())
+                .blockLast();
+
+        assertThat(detector.top()).extracting(SlowQuerySample::getPartition)
+                .containsExactlyInAnyOrder("p0", "p1", "p2");
+        assertThat(detector.top()).allMatch(SlowQuerySample::isCancelled);
+    }
+
+    private static List<String> ids(PartitionedMessageStore s, MessageQuery query) {
+        return s.find(query).map(MessageEntity::getId).collectList().block();
+    }
+
+    private static MessageEntity entity(String id, String target, boolean urgent, int minutesAfter) {
+        MessageEntity e = new MessageEntity();
+        e.setId(id);
+        e.setTarget(target);
+        e.setSender("sender@example.com");
+        e.setTitle("title " + id);
+        e.setUrgent(urgent);
+        e.setPublicationTimestamp(Date.from(NOW.plusSeconds(60L * minutesAfter)));
+        return e;
+    }
+}
@@ -0,0 +1,119 @@
+package il.ac.afeka.cloud.reactivemessagingservice.dal;
+
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SlowQueryDetectorTests {
+
+    private static final Document COLLSCAN_EXPLAIN = Document.parse("""
+            {
+              "queryPlanner": {"winningPlan": {"stage": "SORT", "inputStage": {"stage": "COLLSCAN"}}},
+              "executionStats": {"nReturned": 10, "totalKeysExamined": 0, "totalDocsExamined": 5000, "executionTimeMillis": 42}
+            }
+            """);
+
+    @Test
+    void track_slowQuery_isRecordedWithExplain() {
+        SlowQueryDetector detector = new SlowQueryDetector(20, 1.0, 5, 60_000);
+        MessageQuery query = MessageQuery.builder().target("slow@example.com").urgentOnly().build();
+
+        detector.track("p0", query, Flux.just(1, 2).delayElements(Duration.ofMillis(30)), q -> Mono.just(COLLSCAN_EXPLAIN))
+                .blockLast();
+
+        List<SlowQuerySample> top = detector.top();
+        assertThat(top).hasSize(1);
+        assertThat(top.get(0).getPartition()).isEqualTo("p0");
+        assertThat(top.get(0).getShape()).isEqualTo("target+urgent");
+        assertThat(top.get(0).getTarget()).isEqualTo("slow@example.com");
+        assertThat(top.get(0).getLatencyMillis()).isGreaterThanOrEqualTo(20);
+        assertThat(top.get(0).isCancelled()).isFalse();
+        assertThat(top.get(0).getExplain().plan()).isEqualTo("SORT > COLLSCAN");
+        assertThat(top.get(0).getExplain().collectionScan()).isTrue();
+        assertThat(top.get(0).getExplain().docsExamined()).isEqualTo(5000);
+        assertThat(top.get(0).getExplain().returned()).isEqualTo(10);
+    }
+
+    @Test
+    void track_fastQuery_isIgnored() {
+        SlowQueryDetector detector = new SlowQueryDetector(1_000, 1.0, 5, 60_000);
+
+        detector.track("p0", MessageQuery.builder().build(), Flux.just(1), q -> Mono.just(COLLSCAN_EXPLAIN)).blockLast();
+
+        assertThat(detector.top()).isEmpty();
+    }
+
+    @Test
+    void track_keepsOnlyTopN() {
+        SlowQueryDetector detector = new SlowQueryDetector(0, 1.0, 2, 60_000);
+
+        for (int delay : new int[]{5, 40, 20, 60}) {
+            detector.track("p0", MessageQuery.builder().build(),
+                            Mono.delay(Duration.ofMillis(delay)).flux(),
+                            q -> Mono.empty())
+                    .blockLast();
+        }
+
+        assertThat(detector.top()).extracting(SlowQuerySample::getLatencyMillis)
+                .hasSize(2)
+                .allMatch(latency -> latency >= 40);
+    }
+
+    @Test
+    void track_sameShape_isExplainedOncePerInterval() {
+        SlowQueryDetector detector = new SlowQueryDetector(0, 1.0, 5, 60_000);
+        AtomicInteger explains = new AtomicInteger();
+        Function<MessageQuery, Mono<Document>> explainer =
+                q -> Mono.fromSupplier(() -> {
+                    explains.incrementAndGet();
+                    return COLLSCAN_EXPLAIN;
+                });
+
+        for (String target : List.of("a@example.com", "b@example.com", "c@example.com")) {
+            detector.track("p0", MessageQuery.builder().target(target).build(), Flux.just(1), explainer).blockLast();
+        }
+        detector.track("p0", MessageQuery.builder().sender("s@example.com").build(), Flux.just(1), explainer).blockLast();
+
+        // one per shape: target, sender
+        assertThat(explains).hasValue(2);
+        assertThat(detector.top()).hasSize(4)
+                .allSatisfy(sample -> assertThat(sample.getExplain().plan()).isEqualTo("SORT > COLLSCAN"));
+    }
+
+    @Test
+    void track_samplesEachSubscription() {
+        SlowQueryDetector detector = new SlowQueryDetector(0, 0.5, 1_000, 60_000);
+        Flux<Integer> search = detector.track("p0", MessageQuery.builder().build(), Flux.just(1), q -> Mono.empty());
+
+        for (int i = 0; i < 200; i++) {
+            search.blockLast();
+        }
+
+        // decided once at assembly this would be all or nothing
+        assertThat(detector.top()).hasSizeBetween(1, 199);
+    }
+
+    @Test
+    void track_cancelledSlowExecution_isRecordedAsLowerBound() {
+        SlowQueryDetector detector = new SlowQueryDetector(20, 1.0, 5, 60_000);
+
+        // like the partition fan-out: the page is full before this partition finished streaming
+        detector.track("p2", MessageQuery.builder().build(),
+                        Flux.just(1, 2, 3).delayElements(Duration.ofMillis(30)), q -> Mono.empty())
+                .take(1)
+                .blockLast();
+
+        List<SlowQuerySample> top = detector.top();
+        assertThat(top).hasSize(1);
+        assertThat(top.get(0).getPartition()).isEqualTo("p2");
+        assertThat(top.get(0).isCancelled()).isTrue();
+        assertThat(top.get(0).getLatencyMillis()).isGreaterThanOrEqualTo(20);
+    }
+}
@@ -0,0 +1,98 @@
+package il.ac.afeka.cloud.reactivemessagingservice.logic;
+
+import il.ac.afeka.cloud.reactivemessagingservice.error.TooManyRequestsException;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.catchThrowableOfType;
+
+class MessageRateLimiterTests {
+
+    // practically no refill during a test: only the burst counts
+    private static final double NO_REFILL = 1e-6;
+
+    @Test
+    void acquire_emptySenderBucket_throwsWithQuotaHeaders() {
+        MessageRateLimiter limiter = limiter(2, List.of(), 100);
+        TokenBucketLimiter.Decision first = limiter.acquire("s@example.com", "t1@example.com");
+        limiter.acquire("s@example.com", "t2@example.com");
+
+        // the sender bucket is the tighter one
+        assertThat(first.limit()).isEqualTo(2);
+        assertThat(first.remaining()).isEqualTo(1);
+
+        TooManyRequestsException e = catchThrowableOfType(TooManyRequestsException.class,
+                () -> limiter.acquire("s@example.com", "t3@example.com"));
+
+        assertThat(e.getStatusCode()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+        assertThat(e.getReason()).contains("sender s@example.com");
+        assertThat(e.getHeaders().getFirst("X-RateLimit-Limit")).isEqualTo("2");
+        assertThat(e.getHeaders().getFirst("X-RateLimit-Remaining")).isEqualTo("0");
+        assertThat(Long.parseLong(e.getHeaders().getFirst(HttpHeaders.RETRY_AFTER))).isPositive();
+        assertThat(limiter.stats().throttledBySender()).isEqualTo(1);
+        assertThat(limiter.stats().allowed()).isEqualTo(2);
+    }
+
+    @Test
+    void acquire_emptyTargetBucket_givesTheSenderTokenBack() {
+        MessageRateLimiter limiter = limiter(2, List.of(), 1);
+        TokenBucketLimiter.Decision first = limiter.acquire("s@example.com", "t1@example.com");
+        assertThat(first.limit()).isEqualTo(1);
+        assertThat(first.remaining()).isZero();
+
+        assertThatThrownBy(() -> limiter.acquire("s@example.com", "t1@example.com"))
+                .isInstanceOf(TooManyRequestsException.class)
+                .hasMessageContaining("target t1@example.com");
+
+        // the rejected message did not use up the sender's second token
+        assertThatCode(() -> limiter.acquire("s@example.com", "t2@example.com")).doesNotThrowAnyException();
+        assertThat(limiter.stats().throttledByTarget()).isEqualTo(1);
+        assertThat(limiter.stats().throttledBySender()).isZero();
+    }
+
+    @Test
+    void senderOverrides_areParsedAndNormalized() {
+        MessageRateLimiter limiter = limiter(1, List.of(" Bulk@Example.com = 3/0.000001 ", "", "other@example.com=2/1"), 100);
+
+        for (int i = 0; i < 3; i++) {
+            limiter.acquire("bulk@example.com", "t" + i + "@example.com");
+        }
+        assertThatThrownBy(() -> limiter.acquire("bulk@example.com", "t3@example.com"))
+                .isInstanceOf(TooManyRequestsException.class);
+
+        // everyone else keeps the default capacity of 1
+        limiter.acquire("a@example.com", "t0@example.com");
+        assertThatThrownBy(() -> limiter.acquire("a@example.com", "t1@example.com"))
+                .isInstanceOf(TooManyRequestsException.class);
+    }
+
+    @Test
+    void senderOverrides_malformedEntry_isRejected() {
+        for (String entry : List.of("bulk@example.com=3", "=3/1", "bulk@example.com", "bulk@example.com=x/1",
+                "bulk@example.com=3/fast")) {
+            assertThatThrownBy(() -> limiter(1, List.of(entry), 100))
+                    .as(entry)
+                    .isInstanceOf(IllegalArgumentException.class);
+        }
+    }
+
+    @Test
+    void disabled_neverThrottles() {
+        MessageRateLimiter limiter = new MessageRateLimiter(false, 1, NO_REFILL, List.of(), 1, NO_REFILL, 100, 10_000);
+
+        for (int i = 0; i < 10; i++) {
+            assertThat(limiter.acquire("s@example.com", "t@example.com")).isNull();
+        }
+        assertThat(limiter.stats().enabled()).isFalse();
+        assertThat(limiter.stats().senderBuckets()).isZero();
+    }
+
+    private static MessageRateLimiter limiter(long senderCapacity, List<String> overrides, long targetCapacity) {
+        return new MessageRateLimiter(true, senderCapacity, NO_REFILL, overrides, targetCapacity, NO_REFILL, 100, 10_000);
+    }
+}
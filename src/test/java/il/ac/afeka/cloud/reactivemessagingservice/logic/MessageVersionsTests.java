@@ -0,0 +1,113 @@
+package il.ac.afeka.cloud.reactivemessagingservice.logic;
+
+import org.junit.jupiter.api.Test;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MessageVersionsTests {
+
+    @Test
+    void recipientTag_changesOnlyForThatRecipient() {
+        MessageVersions versions = new MessageVersions(100, 0);
+        String a = versions.recipientTag("a@example.com");
+        String b = versions.recipientTag("b@example.com");
+        String global = versions.globalTag();
+
+        versions.messageCreated("a@example.com");
+
+        assertThat(versions.recipientTag("a@example.com")).isNotEqualTo(a);
+        assertThat(versions.recipientTag("b@example.com")).isEqualTo(b);
+        assertThat(versions.globalTag()).isNotEqualTo(global);
+    }
+
+    @Test
+    void allDeleted_neverReusesAnEarlierTag() {
+        MessageVersions versions = new MessageVersions(100, 0);
+        Set<String> seen = new HashSet<>();
+
+        for (int round = 0; round < 3; round++) {
+            versions.messageCreated("a@example.com");
+            assertThat(seen.add(versions.recipientTag("a@example.com"))).isTrue();
+
+            versions.allDeleted();
+            assertThat(seen.add(versions.recipientTag("a@example.com"))).isTrue();
+        }
+    }
+
+    @Test
+    void eviction_keepsTagsMonotonic() {
+        MessageVersions versions = new MessageVersions(2, 0);
+        versions.messageCreated("a@example.com");
+        String a = versions.recipientTag("a@example.com");
+
+        versions.messageCreated("b@example.com");
+        versions.messageCreated("c@example.com"); // evicts a and b
+
+        assertThat(versions.recipientTag("a@example.com")).isNotEqualTo(a);
+    }
+
+    @Test
+    void maxStaleness_changesTagsWithoutWrites() throws InterruptedException {
+        MessageVersions versions = new MessageVersions(100, 1);
+        String a = versions.recipientTag("a@example.com");
+        String global = versions.globalTag();
+
+        Thread.sleep(5);
+
+        assertThat(versions.recipientTag("a@example.com")).isNotEqualTo(a);
+        assertThat(versions.globalTag()).isNotEqualTo(global);
+    }
+
+    @Test
+    void concurrentEviction_neverLowersARecipientVersion() throws InterruptedException {
+        MessageVersions versions = new MessageVersions(4, 0);
+        AtomicReference<String> failure = new AtomicReference<>();
+        CountDownLatch start = new CountDownLatch(1);
+
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            String own = "r" + t + "@example.com";
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                long last = 0;
+                for (int i = 0; i < 20_000 && failure.get() == null; i++) {
+                    if (i % 3 == 0) {
+                        versions.messageCreated(own);
+                    } else if (i % 97 == 0) {
+                        versions.allDeleted();
+                    } else {
+                        versions.messageCreated("other" + i + "@example.com");
+                    }
+                    long version = version(versions.recipientTag(own));
+                    if (version < last) {
+                        failure.set(own + " went from " + last + " back to " + version);
+                    }
+                    last = version;
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertThat(failure.get()).isNull();
+    }
+
+    // W/"<instance>-r<version>"
+    private static long version(String tag) {
+        return Long.parseLong(tag.substring(tag.lastIndexOf("-r") + 2, tag.length() - 1));
+    }
+}
@@ -0,0 +1,154 @@
+package il.ac.afeka.cloud.reactivemessagingservice.logic;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TokenBucketLimiterTests {
+
+    private static final long SECOND = 1_000_000_000L;
+    private static final TokenBucketLimiter.Limit FIVE_PER_SECOND = new TokenBucketLimiter.Limit(5, 5);
+
+    private final AtomicLong clock = new AtomicLong(SECOND);
+
+    @Test
+    void tryAcquire_allowsBurstThenDeniesWithRetryAfter() {
+        TokenBucketLimiter limiter = limiter(Map.of(), 100);
+
+        for (int i = 4; i >= 0; i--) {
+            TokenBucketLimiter.Decision decision = limiter.tryAcquire("a@example.com");
+            assertThat(decision.allowed()).isTrue();
+            assertThat(decision.remaining()).isEqualTo(i);
+        }
+
+        TokenBucketLimiter.Decision denied = limiter.tryAcquire("a@example.com");
+        assertThat(denied.allowed()).isFalse();
+        assertThat(denied.limit()).isEqualTo(5);
+        assertThat(denied.retryAfterMillis()).isEqualTo(200);
+        // other keys have their own bucket
+        assertThat(limiter.tryAcquire("b@example.com").allowed()).isTrue();
+
+        clock.addAndGet(SECOND / 5);
+        assertThat(limiter.tryAcquire("a@example.com").allowed()).isTrue();
+        assertThat(limiter.tryAcquire("a@example.com").allowed()).isFalse();
+    }
+
+    @Test
+    void overrides_andRelease() {
+        TokenBucketLimiter limiter = limiter(Map.of("bulk@example.com", new TokenBucketLimiter.Limit(20, 10)), 100);
+
+        assertThat(acquireAll(limiter, "bulk@example.com")).isEqualTo(20);
+        assertThat(acquireAll(limiter, "a@example.com")).isEqualTo(5);
+
+        limiter.release("a@example.com");
+        assertThat(acquireAll(limiter, "a@example.com")).isEqualTo(1);
+    }
+
+    @Test
+    void sweep_dropsRefilledBuckets_andOverflowStillLimits() {
+        TokenBucketLimiter limiter = limiter(Map.of(), 3);
+        limiter.tryAcquire("a@example.com");
+        limiter.tryAcquire("b@example.com");
+        acquireAll(limiter, "c@example.com");
+
+        // full: further keys share the overflow buckets, which are limited too
+        assertThat(acquireAll(limiter, "d@example.com")).isEqualTo(5);
+        assertThat(limiter.size()).isEqualTo(3);
+        assertThat(limiter.overflowedCount()).isEqualTo(6);
+
+        // after the sweep interval a and b have refilled and are dropped; c is still refilling
+        clock.addAndGet(SECOND / 2);
+        assertThat(limiter.tryAcquire("e@example.com").allowed()).isTrue();
+        assertThat(limiter.evictedCount()).isEqualTo(2);
+        assertThat(limiter.size()).isEqualTo(2);
+        assertThat(acquireAll(limiter, "c@example.com")).isEqualTo(2);
+    }
+
+    @Test
+    void sweep_runsOnTheSchedulerNotTheCaller() {
+        List<Runnable> scheduled = new ArrayList<>();
+        Scheduler deferred = new Scheduler() {
+            @Override
+            public Disposable schedule(Runnable task) {
+                scheduled.add(task);
+                return Disposables.single();
+            }
+
+            @Override
+            public Worker createWorker() {
+                return Schedulers.immediate().createWorker();
+            }
+        };
+        TokenBucketLimiter limiter = limiter(Map.of(), 100, deferred);
+        limiter.tryAcquire("a@example.com");
+
+        clock.addAndGet(SECOND);
+        limiter.tryAcquire("b@example.com");
+
+        // due, but the caller only handed it off
+        assertThat(scheduled).hasSize(1);
+        assertThat(limiter.evictedCount()).isZero();
+
+        scheduled.get(0).run();
+        assertThat(limiter.evictedCount()).isEqualTo(1);
+        assertThat(limiter.size()).isEqualTo(1);
+    }
+
+    @Test
+    void concurrentAcquire_neverHandsOutMoreThanCapacity() throws InterruptedException {
+        TokenBucketLimiter limiter = limiter(Map.of("hot@example.com", new TokenBucketLimiter.Limit(1000, 1)), 100);
+        AtomicInteger granted = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < 500; i++) {
+                    if (limiter.tryAcquire("hot@example.com").allowed()) {
+                        granted.incrementAndGet();
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        // the clock does not move, so exactly the burst is granted
+        assertThat(granted.get()).isEqualTo(1000);
+    }
+
+    private TokenBucketLimiter limiter(Map<String, TokenBucketLimiter.Limit> overrides, int maxBuckets) {
+        return limiter(overrides, maxBuckets, Schedulers.immediate());
+    }
+
+    private TokenBucketLimiter limiter(Map<String, TokenBucketLimiter.Limit> overrides, int maxBuckets, Scheduler sweeper) {
+        return new TokenBucketLimiter(FIVE_PER_SECOND, overrides, maxBuckets, 500, clock::get, sweeper);
+    }
+
+    private static int acquireAll(TokenBucketLimiter limiter, String key) {
+        int granted = 0;
+        while (limiter.tryAcquire(key).allowed()) {
+            granted++;
+        }
+        return granted;
+    }
+}
@@ -0,0 +1,111 @@
+package il.ac.afeka.cloud.reactivemessagingservice.model;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MoreDetailsCompressorTests {
+
+    // what Boot builds for the application by default, minus the database
+    private static final MappingMongoConverter MONGO_CONVERTER = mongoConverter();
+
+    @Test
+    void compress_largeMap_roundTrips() {
+        MoreDetailsCompressor compressor = new MoreDetailsCompressor(MONGO_CONVERTER, true, 256);
+        Map<String, Object> details = largeDetails();
+
+        byte[] compressed = compressor.compress(details);
+
+        assertThat(compressed).isNotNull();
+        assertThat(compressor.decompress(compressed)).isEqualTo(details);
+        assertThat(compressor.stats().compressedCount()).isEqualTo(1);
+        assertThat(compressor.stats().ratio()).isBetween(0.0, 1.0);
+        assertThat(compressor.stats().decompressedCount()).isEqualTo(1);
+    }
+
+    @Test
+    void compress_smallMap_isStoredAsIs() {
+        MoreDetailsCompressor compressor = new MoreDetailsCompressor(MONGO_CONVERTER, true, 1024);
+
+        assertThat(compressor.compress(Map.of("key", "value"))).isNull();
+        assertThat(compressor.compress(Map.of())).isNull();
+        assertThat(compressor.compress(null)).isNull();
+    }
+
+    @Test
+    void compress_disabled_isStoredAsIs() {
+        MoreDetailsCompressor compressor = new MoreDetailsCompressor(MONGO_CONVERTER, false, 0);
+
+        assertThat(compressor.compress(largeDetails())).isNull();
+    }
+
+    @Test
+    void converter_compressesOnWriteAndDecompressesOnRead() {
+        MessageConverter converter = new MessageConverter(new MoreDetailsCompressor(MONGO_CONVERTER, true, 256));
+        MessageEntity entity = new MessageEntity();
+        Map<String, Object> details = largeDetails();
+
+        assertThat(converter.setMoreDetails(entity, details)).isTrue();
+        assertThat(entity.getMoreDetails()).isNull();
+        assertThat(entity.getCompressedMoreDetails()).isNotNull();
+        assertThat(converter.toBoundary(entity).getMoreDetails()).isEqualTo(details);
+    }
+
+    @Test
+    void converter_withPlainDetails_doesNotDecompress() {
+        MoreDetailsCompressor compressor = new MoreDetailsCompressor(MONGO_CONVERTER, true, 256);
+        MessageConverter converter = new MessageConverter(compressor);
+        MessageEntity entity = new MessageEntity();
+        Map<String, Object> details = largeDetails();
+        converter.setMoreDetails(entity, details);
+
+        assertThat(converter.toBoundary(entity, details).getMoreDetails()).isSameAs(details);
+        assertThat(compressor.stats().decompressedCount()).isZero();
+    }
+
+    @Test
+    void compress_bigNumbers_roundTripAsExactStrings() {
+        MoreDetailsCompressor compressor = new MoreDetailsCompressor(MONGO_CONVERTER, true, 256);
+        Map<String, Object> details = largeDetails();
+        // Jackson reads integers above 64 bits as BigInteger
+        details.put("bigInteger", new BigInteger("123456789012345678901234567890"));
+        details.put("bigDecimal", new BigDecimal("12345.678901234567890"));
+        details.put("nested", Map.of("amounts", List.of(new BigInteger("99999999999999999999"), new BigDecimal("0.1"))));
+
+        byte[] compressed = compressor.compress(details);
+        assertThat(compressed).isNotNull();
+
+        Map<String, Object> read = compressor.decompress(compressed);
+        assertThat(read.get("bigInteger")).isEqualTo("123456789012345678901234567890");
+        assertThat(read.get("bigDecimal")).isEqualTo("12345.678901234567890");
+        assertThat(read.get("nested")).isEqualTo(Map.of("amounts", List.of("99999999999999999999", "0.1")));
+        assertThat(read.get("items")).isEqualTo(details.get("items"));
+    }
+
+    private static MappingMongoConverter mongoConverter() {
+        MappingMongoConverter converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, new MongoMappingContext());
+        converter.afterPropertiesSet();
+        return converter;
+    }
+
+    private static Map<String, Object> largeDetails() {
+        List<Object> items = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            items.add(Map.of("sku", "SKU-" + i, "quantity", i, "price", i * 1.5, "gift", i % 2 == 0));
+        }
+        Map<String, Object> details = new HashMap<>();
+        details.put("orderId", "order-42");
+        details.put("items", items);
+        details.put("note", "repeated text ".repeat(50));
+        return details;
+    }
+}